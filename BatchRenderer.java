@@ -0,0 +1,276 @@
+package Mandelbrot.Self;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+//headless renderer for zoom sequences, every frame is rendered on all cores and saved as <frame>.png like the recorder does
+//frames are only renamed to their final name when they are completely written, frames that already exist are skipped, so a crashed run continues with the first missing frame when it is started again
+//with --auto-iterations the limit of every frame is kept in iterations.txt in the output directory, so a continued run uses the same limits
+//
+//java Mandelbrot.Self.BatchRenderer --center -0.743643887 0.131825904 --start-range 3.5 --end-range 1e-10
+//     --zoom 0.8 --frames 100 --size 1920 1080 --iterations 1000 --color 200 200 200 --output pictures
+//     [--auto-iterations] [--frame-budget <ms>] [--workers host:port,host:port] [--local-workers <count>]
+//     [--supersampling <samples per axis>]
+public class BatchRenderer {
+
+    private BigDecimal centerR = new BigDecimal("-0.75");
+    private BigDecimal centerI = BigDecimal.ZERO;
+    private double startRange = 3.5;
+    private double endRange = 0;
+    private double zoomFactor = 0.8;
+    private int frames = Integer.MAX_VALUE;
+    private int width = 1080, height = 600;
+    private int maxIterations = 100;
+    private int red = 200, green = 200, blue = 200;
+    private File outputDirectory = new File("pictures");
+    //let the escape counts of every frame choose maxIterations of the next one, optionally within a time budget per frame
+    private boolean autoIterations = false;
+    private long frameBudget = 0;
+    //tiles are computed by TileWorker processes when one of these is given
+    private String workers = null;
+    private int localWorkers = 0;
+    //samples per axis for pixels on edges, 1 for no antialiasing
+    private int supersampling = 1;
+    //limits picked by --auto-iterations, kept next to the frames
+    private static final String LIMITS_FILE = "iterations.txt";
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        BatchRenderer batchRenderer = new BatchRenderer();
+        try {
+            batchRenderer.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        try {
+            batchRenderer.run();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private void parse(String[] args){
+        Map<String, Integer> argumentCounts = new HashMap<>();
+        argumentCounts.put("--center", 2);
+        argumentCounts.put("--start-range", 1);
+        argumentCounts.put("--end-range", 1);
+        argumentCounts.put("--zoom", 1);
+        argumentCounts.put("--frames", 1);
+        argumentCounts.put("--size", 2);
+        argumentCounts.put("--iterations", 1);
+        argumentCounts.put("--color", 3);
+        argumentCounts.put("--output", 1);
+        argumentCounts.put("--auto-iterations", 0);
+        argumentCounts.put("--frame-budget", 1);
+        argumentCounts.put("--workers", 1);
+        argumentCounts.put("--local-workers", 1);
+        argumentCounts.put("--supersampling", 1);
+
+        for(int i = 0; i < args.length; i++){
+            String option = args[i];
+            Integer count = argumentCounts.get(option);
+            if(count == null){
+                throw new IllegalArgumentException("Unknown option " + option);
+            }
+            if(i + count >= args.length){
+                throw new IllegalArgumentException(option + " needs " + count + " value(s)");
+            }
+            try {
+                switch (option) {
+                    case "--center":
+                        centerR = new BigDecimal(args[i + 1]);
+                        centerI = new BigDecimal(args[i + 2]);
+                        break;
+                    case "--start-range":
+                        startRange = Double.parseDouble(args[i + 1]);
+                        break;
+                    case "--end-range":
+                        endRange = Double.parseDouble(args[i + 1]);
+                        break;
+                    case "--zoom":
+                        zoomFactor = Double.parseDouble(args[i + 1]);
+                        break;
+                    case "--frames":
+                        frames = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--size":
+                        width = Integer.parseInt(args[i + 1]);
+                        height = Integer.parseInt(args[i + 2]);
+                        break;
+                    case "--iterations":
+                        maxIterations = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--color":
+                        red = Integer.parseInt(args[i + 1]);
+                        green = Integer.parseInt(args[i + 2]);
+                        blue = Integer.parseInt(args[i + 3]);
+                        break;
+                    case "--output":
+                        outputDirectory = new File(args[i + 1]);
+                        break;
+                    case "--auto-iterations":
+                        autoIterations = true;
+                        break;
+                    case "--frame-budget":
+                        frameBudget = Long.parseLong(args[i + 1]);
+                        break;
+                    case "--workers":
+                        workers = args[i + 1];
+                        break;
+                    case "--local-workers":
+                        localWorkers = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--supersampling":
+                        supersampling = Integer.parseInt(args[i + 1]);
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Please insert real number for " + option);
+            }
+            i += count;
+        }
+
+        if(frames == Integer.MAX_VALUE && endRange <= 0){
+            throw new IllegalArgumentException("Either --frames or --end-range is needed");
+        }
+        if(supersampling < 1){
+            throw new IllegalArgumentException("--supersampling has to be at least 1");
+        }
+        if(zoomFactor <= 0 || zoomFactor >= 1){
+            throw new IllegalArgumentException("--zoom has to be between 0 and 1");
+        }
+        if(frames < 1){
+            throw new IllegalArgumentException("--frames has to be at least 1");
+        }
+        if(width < 1 || height < 1){
+            throw new IllegalArgumentException("--size has to be at least 1 1");
+        }
+        //the auto iteration tuner doesn't go above a million either
+        if(maxIterations < 1 || maxIterations > 1_000_000){
+            throw new IllegalArgumentException("--iterations has to be between 1 and 1000000");
+        }
+        if(frameBudget < 0){
+            throw new IllegalArgumentException("--frame-budget can't be negative");
+        }
+        if(startRange <= 0){
+            throw new IllegalArgumentException("--start-range has to be above 0");
+        }
+        if(red < 0 || red > 255 || green < 0 || green > 255 || blue < 0 || blue > 255){
+            throw new IllegalArgumentException("--color values have to be between 0 and 255");
+        }
+        if(localWorkers < 0){
+            throw new IllegalArgumentException("--local-workers can't be negative");
+        }
+    }
+
+    private void run() throws IOException {
+        Files.createDirectories(outputDirectory.toPath());
+        RenderEngine renderEngine = new RenderEngine();
+        TileCluster tileCluster = null;
+        if(workers != null){
+            tileCluster = TileCluster.connect(workers);
+        }
+        else if(localWorkers > 0){
+            tileCluster = TileCluster.local(localWorkers, Math.max(1, Runtime.getRuntime().availableProcessors() / localWorkers));
+        }
+        renderEngine.setCluster(tileCluster);
+        renderEngine.setSupersampling(supersampling);
+        if(tileCluster != null){
+            waitForWorkers(tileCluster);
+        }
+        Palette palette = new Palette(red, green, blue, maxIterations);
+        IterationTuner iterationTuner = new IterationTuner(Math.min(100, maxIterations), 1_000_000);
+        iterationTuner.setFrameBudgetMillis(frameBudget);
+        int maxIterations = this.maxIterations;
+        Path limitsFile = outputDirectory.toPath().resolve(LIMITS_FILE);
+        Map<Integer, Integer> limits = autoIterations ? readLimits(limitsFile) : Collections.emptyMap();
+        //the PNGs are encoded on a background thread while the next frame is rendered
+        FrameWriter frameWriter = new FrameWriter(outputDirectory, 4, 1, FrameWriter.Backpressure.BLOCK);
+
+        double rangeR = startRange;
+        for(int frame = 0; frame < frames && rangeR >= endRange; frame++, rangeR *= zoomFactor){
+            File outputFile = new File(outputDirectory, frame + ".png");
+            if(outputFile.exists()){
+                continue;
+            }
+
+            //the limit the tuner picked for this frame before the run was interrupted
+            maxIterations = limits.getOrDefault(frame, maxIterations);
+            long start = System.nanoTime();
+            Viewport viewport = new Viewport(centerR, centerI, rangeR, rangeR * height / width, maxIterations, width, height);
+            int[][] samples = new int[width * height][];
+            int[] iterations = renderEngine.renderFrame(viewport, samples);
+            long nanos = System.nanoTime() - start;
+            if(!palette.matches(red, green, blue, maxIterations)){
+                palette = new Palette(red, green, blue, maxIterations);
+            }
+            int[] pixels = new int[width * height];
+            palette.apply(iterations, samples, pixels, 0, pixels.length);
+            frameWriter.submit(frame, pixels, width, height);
+
+            System.out.printf("frame %d, range %.3e, %d iterations, %.0f ms%n", frame, rangeR, maxIterations, nanos / 1e6);
+            if(autoIterations){
+                maxIterations = iterationTuner.next(viewport, iterations, nanos);
+                writeLimit(limitsFile, frame, viewport.maxIterations);
+                writeLimit(limitsFile, frame + 1, maxIterations);
+            }
+        }
+
+        try {
+            frameWriter.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if(tileCluster != null){
+            tileCluster.close();
+        }
+    }
+
+    //one "frame limit" line per frame, a later line for the same frame wins
+    private static Map<Integer, Integer> readLimits(Path file) throws IOException {
+        Map<Integer, Integer> limits = new HashMap<>();
+        if(!Files.exists(file)){
+            return limits;
+        }
+        for(String line : Files.readAllLines(file, StandardCharsets.UTF_8)){
+            String[] parts = line.trim().split("\\s+");
+            if(parts.length != 2){
+                continue;
+            }
+            try {
+                limits.put(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+            } catch (NumberFormatException ignored) {
+                //a line that was cut off by the crash
+            }
+        }
+        return limits;
+    }
+
+    private static void writeLimit(Path file, int frame, int limit) throws IOException {
+        Files.write(file, (frame + " " + limit + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    //the engine renders locally while no worker is connected, so the first frames wait a moment for them
+    private static void waitForWorkers(TileCluster tileCluster){
+        long deadline = System.currentTimeMillis() + 5000;
+        while(tileCluster.getConnectedWorkers() == 0 && System.currentTimeMillis() < deadline){
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        System.out.println(tileCluster.getConnectedWorkers() + " tile worker(s) connected");
+    }
+}
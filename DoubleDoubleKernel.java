@@ -0,0 +1,121 @@
+package Mandelbrot.Self;
+
+import java.math.BigDecimal;
+
+//kernel for medium zoom depths: every value is the unevaluated sum of two doubles (hi + lo), which gives about 106 bits of mantissa
+//exact for every pixel like the double kernel, but several times slower, so it is only used where doubles are not enough
+public class DoubleDoubleKernel implements PixelKernel {
+
+    //below this pixel size doubles can't tell the points of neighbouring pixels apart anymore
+    public static final double PIXEL_SIZE_LIMIT = 1e-13;
+
+    private final Viewport viewport;
+    private final boolean periodicityCheck;
+    //the center split into the nearest double and the rest
+    private final double centerRealHi, centerRealLo;
+    private final double centerImaginaryHi, centerImaginaryLo;
+
+    public DoubleDoubleKernel(Viewport viewport){
+        this(viewport, true);
+    }
+
+    public DoubleDoubleKernel(Viewport viewport, boolean periodicityCheck){
+        this.viewport = viewport;
+        this.periodicityCheck = periodicityCheck;
+        centerRealHi = viewport.centerR.doubleValue();
+        centerRealLo = viewport.centerR.subtract(new BigDecimal(centerRealHi)).doubleValue();
+        centerImaginaryHi = viewport.centerI.doubleValue();
+        centerImaginaryLo = viewport.centerI.subtract(new BigDecimal(centerImaginaryHi)).doubleValue();
+    }
+
+    @Override
+    public int iterate(double x, double y){
+        //c = center + distance of the pixel from the center, the distance itself is small enough for a double
+        double cRealHi, cRealLo, cImaginaryHi, cImaginaryLo;
+        {
+            double delta = viewport.deltaReal(x);
+            double s = centerRealHi + delta;
+            double e = twoSumError(centerRealHi, delta, s) + centerRealLo;
+            cRealHi = s + e;
+            cRealLo = e - (cRealHi - s);
+        }
+        {
+            double delta = viewport.deltaImaginary(y);
+            double s = centerImaginaryHi + delta;
+            double e = twoSumError(centerImaginaryHi, delta, s) + centerImaginaryLo;
+            cImaginaryHi = s + e;
+            cImaginaryLo = e - (cImaginaryHi - s);
+        }
+
+        double zRealHi = 0, zRealLo = 0;
+        double zImaginaryHi = 0, zImaginaryLo = 0;
+
+        //Brent's cycle detection like RenderEngine.iterateFast, on the full double-double value
+        double savedRealHi = 0, savedRealLo = 0, savedImaginaryHi = 0, savedImaginaryLo = 0;
+        int period = 1;
+        int steps = 0;
+
+        int maxIterations = viewport.maxIterations;
+        int iteration = 0;
+        while(iteration < maxIterations){
+            //zReal^2 and zImaginary^2
+            double zReal2Hi = zRealHi * zRealHi;
+            double zReal2Lo = Math.fma(zRealHi, zRealHi, -zReal2Hi) + 2 * zRealHi * zRealLo;
+            double zImaginary2Hi = zImaginaryHi * zImaginaryHi;
+            double zImaginary2Lo = Math.fma(zImaginaryHi, zImaginaryHi, -zImaginary2Hi) + 2 * zImaginaryHi * zImaginaryLo;
+
+            //the escape test does not need the low parts
+            if(zReal2Hi + zImaginary2Hi > 4.0){
+                break;
+            }
+
+            //zImaginary = 2 * zReal * zImaginary + cImaginary
+            double productHi = zRealHi * zImaginaryHi;
+            double productLo = Math.fma(zRealHi, zImaginaryHi, -productHi) + zRealHi * zImaginaryLo + zRealLo * zImaginaryHi;
+            double s = 2 * productHi + cImaginaryHi;
+            double e = twoSumError(2 * productHi, cImaginaryHi, s) + 2 * productLo + cImaginaryLo;
+            double newZImaginaryHi = s + e;
+            double newZImaginaryLo = e - (newZImaginaryHi - s);
+
+            //zReal = zReal^2 - zImaginary^2 + cReal
+            s = zReal2Hi - zImaginary2Hi;
+            e = twoSumError(zReal2Hi, -zImaginary2Hi, s) + zReal2Lo - zImaginary2Lo;
+            double differenceHi = s + e;
+            double differenceLo = e - (differenceHi - s);
+            s = differenceHi + cRealHi;
+            e = twoSumError(differenceHi, cRealHi, s) + differenceLo + cRealLo;
+            zRealHi = s + e;
+            zRealLo = e - (zRealHi - s);
+
+            zImaginaryHi = newZImaginaryHi;
+            zImaginaryLo = newZImaginaryLo;
+            iteration++;
+
+            if(periodicityCheck){
+                if(zRealHi == savedRealHi && zRealLo == savedRealLo && zImaginaryHi == savedImaginaryHi && zImaginaryLo == savedImaginaryLo){
+                    return maxIterations;
+                }
+                steps++;
+                if(steps == period){
+                    savedRealHi = zRealHi;
+                    savedRealLo = zRealLo;
+                    savedImaginaryHi = zImaginaryHi;
+                    savedImaginaryLo = zImaginaryLo;
+                    period *= 2;
+                    steps = 0;
+                }
+            }
+        }
+        return iteration;
+    }
+
+    //rounding error of s = a + b, so that a + b == s + error exactly
+    private static double twoSumError(double a, double b, double s){
+        double bb = s - a;
+        return (a - (s - bb)) + (b - bb);
+    }
+
+    public static boolean isNeeded(Viewport viewport){
+        return PixelKernel.isNeeded(viewport) && !PerturbationKernel.isNeeded(viewport);
+    }
+}
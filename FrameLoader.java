@@ -0,0 +1,99 @@
+package Mandelbrot.Self;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//loads the frames of a recording through a fixed size ring buffer, frames ahead of the play head are decoded on background threads
+//only capacity frames are in memory at the same time, no matter how long the recording is
+public class FrameLoader {
+
+    private final FrameSource source;
+    private final int capacity;
+    private final ExecutorService decoders;
+
+    //slot index % capacity holds the frame with that index while it is decoded or shown
+    private final int[] slotIndex;
+    private final Future<?>[] slots;
+    private final RenderMetrics.Latency decodeLatency = new RenderMetrics.Latency();
+
+    public FrameLoader(FrameSource source, int capacity, int threads){
+        this.source = source;
+        this.capacity = capacity;
+        decoders = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Frame loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        slotIndex = new int[capacity];
+        slots = new Future<?>[capacity];
+    }
+
+    public int size(){
+        return source.size();
+    }
+
+    //frame with the given index, waits when it is not decoded yet, null when it can't be read
+    public BufferedImage get(int index){
+        try {
+            return (BufferedImage) request(index).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    //start decoding the frames that come after index, the playback turns around at both ends like the player does
+    public void prefetch(int index, boolean forward){
+        for(int i = 1; i < capacity && source.size() > 1; i++){
+            if(forward && index == source.size() - 1 || !forward && index == 0){
+                forward = !forward;
+            }
+            index += forward ? 1 : -1;
+            request(index);
+        }
+    }
+
+    private synchronized Future<?> request(int index){
+        int slot = index % capacity;
+        if(slots[slot] == null || slotIndex[slot] != index){
+            //the old frame of this slot is not needed anymore
+            if(slots[slot] != null){
+                slots[slot].cancel(false);
+            }
+            slotIndex[slot] = index;
+            slots[slot] = decoders.submit(() -> read(index));
+        }
+        return slots[slot];
+    }
+
+    private BufferedImage read(int index) throws IOException {
+        RenderEvents.FrameDecoded event = new RenderEvents.FrameDecoded();
+        event.frame = index;
+        event.begin();
+        long start = System.nanoTime();
+        BufferedImage image = source.read(index);
+        decodeLatency.record(System.nanoTime() - start);
+        event.commit();
+        return image;
+    }
+
+    //time the source needed per frame, for pictures that is mostly the PNG decoding
+    public RenderMetrics.Latency getDecodeLatency() {
+        return decodeLatency;
+    }
+
+    public void close(){
+        decoders.shutdownNow();
+        try {
+            source.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
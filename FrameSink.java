@@ -0,0 +1,15 @@
+package Mandelbrot.Self;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+//destination for the frames of the FrameWriter, gets called from its encoder threads
+public interface FrameSink extends Closeable {
+
+    void write(int number, int[] pixels, int width, int height) throws IOException;
+
+    //called once after the last frame is written
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,35 @@
+package Mandelbrot.Self;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+//frames of a recording that the player can read in any order, read gets called from the threads of the FrameLoader
+public interface FrameSource extends Closeable {
+
+    int size();
+
+    BufferedImage read(int index) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    //recording that is saved as one picture per frame
+    static FrameSource of(List<File> files){
+        return new FrameSource() {
+            @Override
+            public int size() {
+                return files.size();
+            }
+
+            @Override
+            public BufferedImage read(int index) throws IOException {
+                return ImageIO.read(files.get(index));
+            }
+        };
+    }
+}
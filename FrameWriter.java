@@ -0,0 +1,189 @@
+package Mandelbrot.Self;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//writes recorded frames on background threads, by default as <number>.png, frames wait in a bounded queue
+public class FrameWriter {
+
+    //what happens when the queue is full
+    public enum Backpressure {
+        //the caller waits until there is space again
+        BLOCK,
+        //the frame is thrown away and counted
+        DROP
+    }
+
+    //immutable copy of a frame, the renderer can go on drawing into its own image
+    private static class Frame {
+        final int number;
+        final int[] pixels;
+        final int width, height;
+
+        Frame(int number, int[] pixels, int width, int height){
+            this.number = number;
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    //put into the queue once for every encoder thread to stop it after all frames before it are written
+    private static final Frame END = new Frame(-1, null, 0, 0);
+
+    private final FrameSink sink;
+    private final Backpressure backpressure;
+    private final BlockingQueue<Frame> queue;
+    private final Thread[] encoders;
+    //the last encoder that stops closes the sink
+    private final AtomicInteger runningEncoders;
+
+    private int nextNumber = 0;
+    private boolean finished = false;
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final RenderMetrics.Latency encodeLatency = new RenderMetrics.Latency();
+
+    public FrameWriter(File directory, int capacity, int encoderThreads, Backpressure backpressure){
+        this((number, pixels, width, height) -> writePicture(directory, number, pixels, width, height), capacity, encoderThreads, backpressure);
+    }
+
+    public FrameWriter(FrameSink sink, int capacity, int encoderThreads, Backpressure backpressure){
+        this.sink = sink;
+        this.backpressure = backpressure;
+        runningEncoders = new AtomicInteger(encoderThreads);
+        queue = new ArrayBlockingQueue<>(capacity + encoderThreads);
+
+        encoders = new Thread[encoderThreads];
+        for(int i = 0; i < encoderThreads; i++){
+            encoders[i] = new Thread(this::encode, "Frame writer " + i);
+            encoders[i].start();
+        }
+    }
+
+    //hand the pixels to the encoders, the frames get numbered in the order they are accepted
+    //the array must not be changed afterwards, pass a copy, returns false when the frame was dropped
+    public synchronized boolean submit(int[] pixels, int width, int height){
+        if(submit(nextNumber, pixels, width, height)){
+            nextNumber++;
+            return true;
+        }
+        return false;
+    }
+
+    //same as above but with a fixed frame number
+    //a frame that comes after finish is dropped, a render thread may still finish a frame after the recording was stopped
+    public synchronized boolean submit(int number, int[] pixels, int width, int height){
+        if(finished){
+            return false;
+        }
+        Frame frame = new Frame(number, pixels, width, height);
+        if(backpressure == Backpressure.DROP){
+            if(!queue.offer(frame)){
+                dropped.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+        try {
+            queue.put(frame);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.incrementAndGet();
+            return false;
+        }
+    }
+
+    private void encode(){
+        try {
+            while(true){
+                Frame frame = queue.take();
+                if(frame == END){
+                    return;
+                }
+                RenderEvents.FrameEncoded event = new RenderEvents.FrameEncoded();
+                event.frame = frame.number;
+                event.begin();
+                long start = System.nanoTime();
+                try {
+                    sink.write(frame.number, frame.pixels, frame.width, frame.height);
+                    written.incrementAndGet();
+                    encodeLatency.record(System.nanoTime() - start);
+                    event.commit();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        } catch (InterruptedException ignored) {
+        } finally {
+            if(runningEncoders.decrementAndGet() == 0){
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void writePicture(File directory, int number, int[] pixels, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        System.arraycopy(pixels, 0, ((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, pixels.length);
+
+        //write to a temporary file first, so there is never a half written frame with the final name
+        File outputFile = new File(directory, number + ".png");
+        File temporaryFile = new File(directory, number + ".png.tmp");
+        ImageIO.write(image, "png", temporaryFile);
+        Files.move(temporaryFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //stop accepting frames, the frames in the queue are still written, does not wait for them
+    public synchronized void finish(){
+        if(finished){
+            return;
+        }
+        finished = true;
+        for(int i = 0; i < encoders.length; i++){
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    //finish and wait until all frames are written
+    public void close() throws InterruptedException {
+        finish();
+        for(Thread encoder : encoders){
+            encoder.join();
+        }
+    }
+
+    public int getWritten() {
+        return written.get();
+    }
+
+    //time the sink needed per frame, for pictures that is mostly the PNG encoding
+    public RenderMetrics.Latency getEncodeLatency() {
+        return encodeLatency;
+    }
+
+    public int getDropped() {
+        return dropped.get();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,116 @@
+package Mandelbrot.Self;
+
+//picks maxIterations for the next frame from the escape counts of the last one
+//the limit grows while many pixels that escape do so close to the limit and shrinks when the escape counts stay far below it,
+//with a time budget the limit is also capped so the predicted cost of the next frame fits into the budget
+public class IterationTuner {
+
+    //the limit is kept this many times above the escape count that only 1% of the escaped pixels exceed
+    private static final double HEADROOM = 4;
+    private static final double PERCENTILE = 0.99;
+    //the limit changes at most by this factor per frame, and not at all for changes below the tolerance, so it does not jump around
+    private static final double MAX_STEP = 2;
+    private static final double TOLERANCE = 0.1;
+    private static final int BUCKETS = 256;
+
+    private final int minIterations, maxIterations;
+    //nanoseconds a frame may take, 0 for no budget
+    private volatile long frameBudget;
+
+    //statistics of the last observed frame
+    private volatile double cappedFraction;
+    private volatile int percentileIterations;
+    private volatile double nanosPerEscapeCount;
+
+    public IterationTuner(int minIterations, int maxIterations){
+        if(minIterations < 1 || maxIterations < minIterations){
+            throw new IllegalArgumentException("Invalid iteration bounds " + minIterations + ".." + maxIterations);
+        }
+        this.minIterations = minIterations;
+        this.maxIterations = maxIterations;
+    }
+
+    //iterations are the counts of a completely rendered frame with the limit viewport.maxIterations, nanos the time it took or 0 when unknown
+    public int next(Viewport viewport, int[] iterations, long nanos){
+        int limit = viewport.maxIterations;
+
+        //histogram of the escaped pixels with buckets of equal width up to the limit
+        long[] histogram = new long[BUCKETS];
+        long capped = 0;
+        long escapedSum = 0;
+        for(int iteration : iterations){
+            if(iteration >= limit){
+                capped++;
+            }
+            else{
+                histogram[(int)((long)iteration * BUCKETS / limit)]++;
+                escapedSum += iteration;
+            }
+        }
+        long escaped = iterations.length - capped;
+        cappedFraction = (double)capped / iterations.length;
+
+        int target = limit;
+        if(escaped > 0){
+            //escape count below which PERCENTILE of the escaped pixels lie, rounded up to the end of its bucket
+            long wanted = (long)Math.ceil(escaped * PERCENTILE);
+            long seen = 0;
+            int bucket = 0;
+            while(bucket < BUCKETS - 1 && seen + histogram[bucket] < wanted){
+                seen += histogram[bucket];
+                bucket++;
+            }
+            percentileIterations = (int)((long)(bucket + 1) * limit / BUCKETS);
+            target = (int)Math.min(Integer.MAX_VALUE, (long)(percentileIterations * HEADROOM));
+        }
+        else{
+            //nothing escaped, so there is no detail that tells how deep to go, only more iterations can show some
+            percentileIterations = limit;
+            target = (int)Math.min(Integer.MAX_VALUE, (long)(limit * MAX_STEP));
+        }
+
+        target = (int)Math.max(limit / MAX_STEP, Math.min(limit * MAX_STEP, target));
+
+        //the time of a frame is mostly escaped pixels, which stay the same, plus the capped pixels which run up to the limit
+        //the time is measured per escape count, not per iteration that really ran: capped pixels the fast path stops early are
+        //charged with the whole limit here and in the prediction, so the budget still works out when most of them are skipped
+        long budget = frameBudget;
+        if(nanos > 0){
+            long escapeCountSum = escapedSum + capped * limit;
+            nanosPerEscapeCount = escapeCountSum > 0 ? (double)nanos / escapeCountSum : 0;
+            if(budget > 0 && capped > 0 && nanosPerEscapeCount > 0){
+                double affordable = (budget / nanosPerEscapeCount - escapedSum) / capped;
+                target = (int)Math.max(minIterations, Math.min(target, affordable));
+            }
+        }
+
+        target = Math.max(minIterations, Math.min(maxIterations, target));
+        if(Math.abs(target - limit) < limit * TOLERANCE){
+            return limit;
+        }
+        return target;
+    }
+
+    public long getFrameBudgetMillis() {
+        return frameBudget / 1_000_000;
+    }
+
+    public void setFrameBudgetMillis(long frameBudget) {
+        this.frameBudget = frameBudget * 1_000_000;
+    }
+
+    //fraction of pixels of the last frame that reached the limit
+    public double getCappedFraction() {
+        return cappedFraction;
+    }
+
+    //escape count that 99% of the escaped pixels of the last frame stayed below
+    public int getPercentileIterations() {
+        return percentileIterations;
+    }
+
+    //time of the last frame divided by the sum of its escape counts, with capped pixels counted at the limit
+    public double getNanosPerEscapeCount() {
+        return nanosPerEscapeCount;
+    }
+}
@@ -1,36 +1,104 @@
 package Mandelbrot.Self;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.*;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-public class MandelbrotPanel extends JPanel implements MouseListener{
+public class MandelbrotPanel extends JPanel implements MouseListener, RenderListener{
 
     //declare variables
     private final int IMAGE_WIDTH, IMAGE_HEIGHT;
-    private int maxIterations = 100;
+    private volatile int maxIterations = 100;
     private double zoomFactor = 0.8;
     private final double OFFSET = 0.1;
-    public boolean stateChanged = true;
     private final BufferedImage mandelbrotImage;
-
-    private double middleR = -0.75;
-    private double middleI = 0;
+    //backing array of the image and the iteration count of every pixel, both row by row
+    private final int[] pixels;
+    private final int[] iterations;
+    //last z of every pixel that did not escape, so raising maxIterations only continues those pixels
+    private final double[] zReal;
+    private final double[] zImaginary;
+    //sub-samples of the pixels on edges when supersampling is on, null for all other pixels
+    private final int[][] samples;
+    //tiles get colored under the read lock, recoloring and shifting the whole frame takes the write lock
+    private final ReadWriteLock colorLock = new ReentrantReadWriteLock();
+    private final RenderEngine renderEngine = new RenderEngine();
+
+    //the center has arbitrary precision so zooming can go deeper than doubles allow
+    private BigDecimal middleR = new BigDecimal("-0.75");
+    private BigDecimal middleI = BigDecimal.ZERO;
 
     private double rangeR = 3.5;
     private double rangeI = 2;
 
-    private boolean recording = false;
-    private int recordCount = 0;
-
-    private int red, green, blue;
+    //recording hands a copy of every finished frame to the frame writer, null when not recording
+    private volatile FrameWriter frameWriter;
+    private FrameWriter.Backpressure recordingBackpressure = FrameWriter.Backpressure.DROP;
+    //record into pictures/recording.mbr instead of one picture per frame
+    private boolean recordToFile = false;
+    private static final int RECORDING_QUEUE_SIZE = 16;
+
+    private volatile int red, green, blue;
+    private volatile Palette palette;
+
+    //rendered frames, so zooming out and going back to a viewport only costs a recolor
+    private static final long CACHE_BYTES = 256L * 1024 * 1024;
+    private final ViewportCache viewportCache = new ViewportCache(CACHE_BYTES);
+
+    //in auto mode every finished frame picks maxIterations for the next one
+    private final IterationTuner iterationTuner = new IterationTuner(100, 1_000_000);
+    private volatile boolean autoIterations = false;
+    //full render that is timed for the tuner and when it started
+    private volatile Viewport timedViewport;
+    private volatile long renderStart;
+
+    //draw the numbers of the last frame over the image
+    private volatile boolean showMetrics = false;
+
+    //progressive mode: a moving view is rendered with a reduced resolution first and refined when the input stops
+    private volatile boolean progressive = false;
+    //the first pass should take about this long, it decides how much the resolution is reduced
+    private volatile long frameTimeTarget = 50;
+    private static final int MAX_PREVIEW_SCALE = 8;
+    //the next finer pass starts when there was no input for this long
+    private static final int IDLE_MILLIS = 150;
+    private final Timer refineTimer;
+    //reduction of the pass that is rendered right now, 1 for the real frame
+    private volatile int passScale = 1;
+    private volatile long lastInput;
+    //cost per pixel of the last frame that was rendered from scratch and its maxIterations, 0 before the first one
+    private double estimatedNanosPerPixel;
+    private int estimatedMaxIterations;
+    private volatile Viewport deepenedViewport;
+
+    //zoom animation, only used on the event dispatch thread: the image before the click, the range ratio of the zoom and the start times
+    private static final int ZOOM_MILLIS = 250;
+    private static final int FADE_MILLIS = 150;
+    private volatile boolean animateZoom = true;
+    private BufferedImage zoomFrom;
+    private double zoomRatio;
+    private long zoomStart, fadeStart;
+    private Viewport zoomTarget;
+    private final Timer animationTimer;
+    //viewport whose preview pass was shown completely
+    private volatile Viewport shownViewport;
+
+    //viewport that is shown right now and the last one that got rendered completely
+    private volatile Viewport currentViewport;
+    private volatile Viewport finishedViewport;
 
     //declare actions for keybindings
     Action upAction;
@@ -43,6 +111,14 @@ public class MandelbrotPanel extends JPanel implements MouseListener{
         IMAGE_HEIGHT = height;
 
         mandelbrotImage = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        pixels = ((DataBufferInt) mandelbrotImage.getRaster().getDataBuffer()).getData();
+        iterations = new int[IMAGE_WIDTH * IMAGE_HEIGHT];
+        zReal = new double[IMAGE_WIDTH * IMAGE_HEIGHT];
+        zImaginary = new double[IMAGE_WIDTH * IMAGE_HEIGHT];
+        samples = new int[IMAGE_WIDTH * IMAGE_HEIGHT][];
+        refineTimer = new Timer(IDLE_MILLIS, e -> refine(currentViewport, passScale));
+        refineTimer.setRepeats(false);
+        animationTimer = new Timer(15, e -> repaint());
 
         //init actions for keybindings
         upAction = new GoUp();
@@ -66,97 +142,487 @@ public class MandelbrotPanel extends JPanel implements MouseListener{
         addMouseListener(this);
     }
 
-    private void compute(){
-        for(int x = 0; x < IMAGE_WIDTH; x++){
-            for(int y = 0; y < IMAGE_HEIGHT; y++){
-                //calculate c
-                double cReal = (double)x / (double)IMAGE_WIDTH;
-                double cImaginary = (double)y / (double)IMAGE_HEIGHT;
+    //start rendering the current viewport, the tiles get drawn as soon as they are finished
+    public void render(){
+        lastInput = System.nanoTime();
+        //a running zoom animation waits for a viewport that this render replaces, so its fade would never start
+        stopZoomAnimation();
+        Viewport viewport = new Viewport(middleR, middleI, rangeR, rangeI, maxIterations, IMAGE_WIDTH, IMAGE_HEIGHT);
+        if(showCached(viewport)){
+            return;
+        }
+        if(deepen(viewport)){
+            return;
+        }
+        startRender(viewport);
+    }
 
-                cReal = cReal * rangeR + middleR - rangeR / 2;
-                cImaginary = cImaginary * rangeI + middleI - rangeI / 2;
+    //render the whole viewport, in progressive mode with reduced passes first
+    private void startRender(Viewport viewport){
+        currentViewport = viewport;
+        renderPass(viewport, progressive ? previewScale(viewport) : 1);
+    }
 
-                //set values needed for calc
-                double zReal = 0;
-                double zImaginary = 0;
+    //scale 1 is the real frame, bigger scales render a frame that is that many times smaller in each direction
+    private void renderPass(Viewport viewport, int scale){
+        passScale = scale;
+        if(scale == 1){
+            renderStart = System.nanoTime();
+            timedViewport = viewport;
+            renderEngine.render(viewport, this);
+            return;
+        }
+        renderEngine.renderPreview(previewViewport(viewport, scale), new PreviewListener(viewport, scale));
+    }
 
-                int iteration = 0;
-                while(iteration < maxIterations){
-                    double zReal2 = zReal * zReal;
-                    double zImaginary2 = zImaginary * zImaginary;
+    //the pixel grid of the preview lies on every scale-th pixel of the frame, so it covers a little more when the size is not divisible by scale
+    private static Viewport previewViewport(Viewport viewport, int scale){
+        int width = (viewport.width + scale - 1) / scale;
+        int height = (viewport.height + scale - 1) / scale;
+        double rangeR = viewport.rangeR * width * scale / viewport.width;
+        double rangeI = viewport.rangeI * height * scale / viewport.height;
+        BigDecimal centerR = rangeR == viewport.rangeR ? viewport.centerR : viewport.centerR.add(new BigDecimal((rangeR - viewport.rangeR) / 2));
+        BigDecimal centerI = rangeI == viewport.rangeI ? viewport.centerI : viewport.centerI.add(new BigDecimal((rangeI - viewport.rangeI) / 2));
+        return new Viewport(centerR, centerI, rangeR, rangeI, viewport.maxIterations, width, height);
+    }
 
-                    //check if numbers are already too high and thus further calc is not needed
-                    if(zReal2 + zImaginary2 > 4.0){
-                        break;
-                    }
+    //smallest reduction that renders the first pass within the frame time target, estimated from the cost per pixel of the last frame
+    private int previewScale(Viewport viewport){
+        RenderMetrics.Frame last = renderEngine.getMetrics().getLastFrame();
+        //pan strips only compute part of the frame, and a deepened frame only continues the pixels in the set, which says little about a fresh render
+        long pixels = last == null ? 0 : last.escaped + last.interior;
+        if(pixels > 0 && last.viewport != deepenedViewport){
+            estimatedNanosPerPixel = (double)last.nanos / pixels;
+            estimatedMaxIterations = last.viewport.maxIterations;
+        }
+        if(estimatedMaxIterations == 0){
+            return MAX_PREVIEW_SCALE;
+        }
+        //pixels in the set get more expensive with more iterations
+        double nanosPerPixel = estimatedNanosPerPixel * Math.max(1, (double)viewport.maxIterations / estimatedMaxIterations);
+        double frameNanos = nanosPerPixel * viewport.width * viewport.height;
+        int scale = 1;
+        while(scale < MAX_PREVIEW_SCALE && frameNanos / (scale * scale) > frameTimeTarget * 1e6){
+            scale *= 2;
+        }
+        return scale;
+    }
 
-                    double newZReal = zReal*zReal-zImaginary*zImaginary+cReal;
-                    zImaginary = 2*zReal*zImaginary+cImaginary;
-                    zReal = newZReal;
-                    iteration++;
+    //render the next finer pass once there was no input for a moment
+    private void refine(Viewport viewport, int scale){
+        if(viewport != currentViewport || scale != passScale || scale == 1){
+            return;
+        }
+        long idle = (System.nanoTime() - lastInput) / 1_000_000;
+        if(idle < IDLE_MILLIS){
+            refineTimer.setInitialDelay((int)(IDLE_MILLIS - idle));
+            refineTimer.restart();
+            return;
+        }
+        renderPass(viewport, scale / 2);
+    }
+
+    //draws the tiles of a reduced pass scaled up into the frame, every preview pixel covers scale x scale pixels
+    private class PreviewListener implements RenderListener {
+        private final Viewport target;
+        private final int scale;
+
+        PreviewListener(Viewport target, int scale){
+            this.target = target;
+            this.scale = scale;
+        }
+
+        @Override
+        public void tileFinished(Viewport preview, Tile tile) {
+            Palette palette = palette(preview.maxIterations);
+            colorLock.readLock().lock();
+            try {
+                if(target != currentViewport){
+                    return;
+                }
+                for(int y = 0; y < tile.height; y++){
+                    int top = (tile.y + y) * scale;
+                    int bottom = Math.min(IMAGE_HEIGHT, top + scale);
+                    for(int x = 0; x < tile.width; x++){
+                        int left = (tile.x + x) * scale;
+                        int right = Math.min(IMAGE_WIDTH, left + scale);
+                        int iteration = tile.iterations[y * tile.width + x];
+                        int color = palette.color(iteration);
+                        for(int row = top; row < bottom; row++){
+                            int offset = row * IMAGE_WIDTH;
+                            Arrays.fill(iterations, offset + left, offset + right, iteration);
+                            Arrays.fill(pixels, offset + left, offset + right, color);
+                            Arrays.fill(samples, offset + left, offset + right, null);
+                        }
+                    }
                 }
+            } finally {
+                colorLock.readLock().unlock();
+            }
+            repaint(tile.x * scale, tile.y * scale, tile.width * scale, tile.height * scale);
+        }
+
+        @Override
+        public void frameFinished(Viewport preview) {
+            shownViewport = target;
+            SwingUtilities.invokeLater(() -> refine(target, scale));
+        }
+    }
+
+    //when only maxIterations got raised the finished frame is continued instead of computed again, returns false when that is not possible
+    private boolean deepen(Viewport viewport){
+        Viewport finished = finishedViewport;
+        if(finished == null || finished != currentViewport || !finished.sameArea(viewport)
+                || viewport.maxIterations <= finished.maxIterations || PixelKernel.isNeeded(viewport)){
+            return false;
+        }
+
+        renderEngine.cancel();
+        //the engine reads the previous frame while new tiles overwrite the buffers, so it gets copies
+        int[] previousIterations;
+        double[] previousZReal;
+        double[] previousZImaginary;
+        colorLock.writeLock().lock();
+        try {
+            previousIterations = iterations.clone();
+            previousZReal = zReal.clone();
+            previousZImaginary = zImaginary.clone();
+        } finally {
+            colorLock.writeLock().unlock();
+        }
+        currentViewport = viewport;
+        passScale = 1;
+        deepenedViewport = viewport;
+        renderEngine.deepen(viewport, finished.maxIterations, previousIterations, previousZReal, previousZImaginary, this);
+        return true;
+    }
+
+    //show the viewport from the cache when it was rendered before, returns false when it has to be rendered
+    private boolean showCached(Viewport viewport){
+        int[] cached = viewportCache.get(viewport);
+        if(cached == null){
+            return false;
+        }
+        renderEngine.cancel();
+        currentViewport = viewport;
+        passScale = 1;
+        RenderEvents.CacheHit event = new RenderEvents.CacheHit();
+        event.range = viewport.rangeR;
+        event.maxIterations = viewport.maxIterations;
+        event.commit();
+        Palette palette = palette(viewport.maxIterations);
+        colorLock.writeLock().lock();
+        try {
+            System.arraycopy(cached, 0, iterations, 0, iterations.length);
+            //the cache has no z, these pixels start from the beginning when the frame gets deepened
+            Arrays.fill(zReal, Tile.UNKNOWN);
+            //the cache only has one count per pixel, so the edges of cached frames are not supersampled
+            Arrays.fill(samples, null);
+            palette.apply(iterations, samples, pixels, 0, pixels.length);
+        } finally {
+            colorLock.writeLock().unlock();
+        }
+        repaint();
+        frameFinished(viewport);
+        return true;
+    }
+
+    //move the view by whole pixels, the part that is still visible gets shifted and only the new strips are computed
+    private void pan(int dx, int dy){
+        lastInput = System.nanoTime();
+        //the shifted frame is shown right away, an old zoom image would cover it
+        stopZoomAnimation();
+        middleR = middleR.add(new BigDecimal(dx * rangeR / IMAGE_WIDTH));
+        middleI = middleI.add(new BigDecimal(dy * rangeI / IMAGE_HEIGHT));
+        Viewport viewport = new Viewport(middleR, middleI, rangeR, rangeI, maxIterations, IMAGE_WIDTH, IMAGE_HEIGHT);
+        if(showCached(viewport)){
+            return;
+        }
 
-                //check which color is needed
-                this.mandelbrotImage.setRGB(x, y, computeColor(iteration).getRGB());
+        //the old image can only be reused when it was completely rendered with the same limit,
+        //in auto mode the tuner changes the limit after a frame is finished
+        Viewport finished = finishedViewport;
+        if(finished == null || finished != currentViewport || finished.maxIterations != viewport.maxIterations
+                || Math.abs(dx) >= IMAGE_WIDTH || Math.abs(dy) >= IMAGE_HEIGHT){
+            startRender(viewport);
+            return;
+        }
+
+        renderEngine.cancel();
+        passScale = 1;
+        colorLock.writeLock().lock();
+        try {
+            shift(iterations, dx, dy);
+            shift(pixels, dx, dy);
+            shift(zReal, dx, dy);
+            shift(zImaginary, dx, dy);
+            shift(samples, dx, dy);
+        } finally {
+            colorLock.writeLock().unlock();
+        }
+        currentViewport = viewport;
+
+        //strips that got exposed by the shift
+        List<Rectangle> regions = new ArrayList<>();
+        if(dx != 0){
+            regions.add(new Rectangle(dx > 0 ? IMAGE_WIDTH - dx : 0, 0, Math.abs(dx), IMAGE_HEIGHT));
+        }
+        if(dy != 0){
+            int x = dx > 0 ? 0 : -dx;
+            regions.add(new Rectangle(x, dy > 0 ? IMAGE_HEIGHT - dy : 0, IMAGE_WIDTH - Math.abs(dx), Math.abs(dy)));
+        }
+        renderEngine.render(currentViewport, regions, this);
+        repaint();
+    }
+
+    //move the content of a frame sized array, the rows are copied in an order that never overwrites rows that are still needed
+    private void shift(Object buffer, int dx, int dy){
+        int width = IMAGE_WIDTH - Math.abs(dx);
+        int height = IMAGE_HEIGHT - Math.abs(dy);
+        int sourceX = Math.max(dx, 0);
+        int targetX = Math.max(-dx, 0);
+        if(dy >= 0){
+            for(int y = 0; y < height; y++){
+                System.arraycopy(buffer, (y + dy) * IMAGE_WIDTH + sourceX, buffer, y * IMAGE_WIDTH + targetX, width);
+            }
+        }
+        else{
+            for(int y = height - 1; y >= 0; y--){
+                System.arraycopy(buffer, y * IMAGE_WIDTH + sourceX, buffer, (y - dy) * IMAGE_WIDTH + targetX, width);
             }
         }
     }
 
-    private Color computeColor(int iteration){
-        double t = (double)iteration / (double) maxIterations;
+    //pan steps are snapped to whole pixels so the reused part of the image stays exact
+    private int pixelsR(double distance){
+        return Math.max(1, (int)Math.round(distance / rangeR * IMAGE_WIDTH));
+    }
 
-        int red = (int)(9 * (1 - t)*t*t*t * this.red);
-        int green = (int)(15 * (1 - t)*(1 - t)*t*t * this.green);
-        int blue = (int)(8.5*(1 - t)*(1 - t)*(1 - t)*t * this.blue);
+    private int pixelsI(double distance){
+        return Math.max(1, (int)Math.round(distance / rangeI * IMAGE_HEIGHT));
+    }
 
-        return new Color(red, green, blue);
+    @Override
+    public void tileFinished(Viewport viewport, Tile tile) {
+        Palette palette = palette(viewport.maxIterations);
+        colorLock.readLock().lock();
+        try {
+            for(int y = 0; y < tile.height; y++){
+                int offset = (tile.y + y) * IMAGE_WIDTH + tile.x;
+                System.arraycopy(tile.iterations, y * tile.width, iterations, offset, tile.width);
+                System.arraycopy(tile.zReal, y * tile.width, zReal, offset, tile.width);
+                System.arraycopy(tile.zImaginary, y * tile.width, zImaginary, offset, tile.width);
+                if(tile.samples != null){
+                    System.arraycopy(tile.samples, y * tile.width, samples, offset, tile.width);
+                }
+                else{
+                    Arrays.fill(samples, offset, offset + tile.width, null);
+                }
+                palette.apply(iterations, samples, pixels, offset, tile.width);
+            }
+        } finally {
+            colorLock.readLock().unlock();
+        }
+        repaint(tile.x, tile.y, tile.width, tile.height);
+    }
+
+    //color the whole frame again from the stored iteration counts, the fractal itself is not computed again
+    public void recolor(){
+        Viewport viewport = currentViewport;
+        if(viewport == null){
+            return;
+        }
+        Palette palette = palette(viewport.maxIterations);
+        colorLock.writeLock().lock();
+        try {
+            palette.apply(iterations, samples, pixels, 0, pixels.length);
+        } finally {
+            colorLock.writeLock().unlock();
+        }
+        repaint();
+    }
+
+    @Override
+    public void frameFinished(Viewport viewport) {
+        finishedViewport = viewport;
+        if(showMetrics){
+            repaint();
+        }
+        FrameWriter frameWriter = this.frameWriter;
+        //the cache only keeps iteration counts, a supersampled frame would come back without its samples
+        boolean cache = renderEngine.getSupersampling() == 1 && !viewportCache.contains(viewport);
+        boolean tune = autoIterations;
+        if(frameWriter == null && !cache && !tune){
+            return;
+        }
+        //only a complete render says how long the limit takes, shifted and cached frames only give the escape counts
+        long nanos = viewport == timedViewport ? System.nanoTime() - renderStart : 0;
+
+        //the write lock keeps tiles of a newer render and recoloring away while the buffers are copied
+        int[] snapshot = null;
+        int[] cachedIterations = null;
+        int nextMaxIterations = viewport.maxIterations;
+        colorLock.writeLock().lock();
+        try {
+            if(viewport != currentViewport){
+                return;
+            }
+            if(frameWriter != null){
+                snapshot = pixels.clone();
+            }
+            if(cache){
+                cachedIterations = iterations.clone();
+            }
+            if(tune){
+                nextMaxIterations = iterationTuner.next(viewport, iterations, nanos);
+            }
+        } finally {
+            colorLock.writeLock().unlock();
+        }
+        if(nextMaxIterations != viewport.maxIterations){
+            //takes effect with the next frame, the one on screen stays as it is
+            int oldMaxIterations = maxIterations;
+            maxIterations = nextMaxIterations;
+            firePropertyChange("maxIterations", oldMaxIterations, nextMaxIterations);
+        }
+        if(cachedIterations != null){
+            viewportCache.put(viewport, cachedIterations);
+        }
+        if(snapshot != null){
+            frameWriter.submit(snapshot, IMAGE_WIDTH, IMAGE_HEIGHT);
+        }
+    }
+
+    //the lookup table is only built again when the colors or the iteration count changed
+    private Palette palette(int maxIterations){
+        Palette palette = this.palette;
+        if(palette == null || !palette.matches(red, green, blue, maxIterations)){
+            palette = new Palette(red, green, blue, maxIterations);
+            this.palette = palette;
+        }
+        return palette;
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g.create();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        if(stateChanged){
-            compute();
-            stateChanged = false;
-        }
-        g2d.drawImage(mandelbrotImage, 0, 0, null);
-        if(recording){
-            File outputFile = new File("pictures/" + recordCount + ".png");
-            try {
-                ImageIO.write(mandelbrotImage, "png", outputFile);
-                recordCount++;
-            } catch (IOException e) {
-                e.printStackTrace();
+        paintFrame(g2d, System.nanoTime());
+        if(showMetrics){
+            paintMetrics(g2d);
+        }
+        g2d.dispose();
+    }
+
+    //the frame, or while a zoom is animated the image from before the click scaled toward the new range and the new frame fading in
+    private void paintFrame(Graphics2D g2d, long now){
+        if(zoomFrom == null){
+            g2d.drawImage(mandelbrotImage, 0, 0, null);
+            return;
+        }
+        double progress = Math.min(1, (double)(now - zoomStart) / (ZOOM_MILLIS * 1_000_000L));
+        //the fade starts when the scaling is done and something of the new frame can be shown
+        if(progress >= 1 && fadeStart == 0 && (finishedViewport == zoomTarget || shownViewport == zoomTarget)){
+            fadeStart = now;
+        }
+        double fade = fadeStart == 0 ? 0 : Math.min(1, (double)(now - fadeStart) / (FADE_MILLIS * 1_000_000L));
+        ZoomInterpolation.drawScaled(g2d, zoomFrom, Math.pow(zoomRatio, -progress), 1);
+        ZoomInterpolation.drawScaled(g2d, mandelbrotImage, 1, (float) fade);
+        if(fade >= 1){
+            stopZoomAnimation();
+        }
+    }
+
+    //copy of what is on screen right now, null when zooms are not animated
+    private BufferedImage snapshotFrame(){
+        if(!animateZoom){
+            return null;
+        }
+        BufferedImage snapshot = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = snapshot.createGraphics();
+        paintFrame(g2d, System.nanoTime());
+        g2d.dispose();
+        return snapshot;
+    }
+
+    //scale snapshot toward the range that is ratio times the one it shows, until the frame of zoomTarget can fade in
+    private void startZoomAnimation(BufferedImage snapshot, double ratio){
+        if(snapshot == null){
+            return;
+        }
+        zoomFrom = snapshot;
+        zoomTarget = currentViewport;
+        zoomRatio = ratio;
+        zoomStart = System.nanoTime();
+        fadeStart = 0;
+        animationTimer.start();
+    }
+
+    private void stopZoomAnimation(){
+        if(zoomFrom != null){
+            zoomFrom = null;
+            animationTimer.stop();
+            repaint();
+        }
+    }
+
+    private void paintMetrics(Graphics2D g2d){
+        List<String> lines = new ArrayList<>();
+        RenderMetrics.Frame frame = renderEngine.getMetrics().getLastFrame();
+        if(frame != null){
+            lines.add(String.format("frame %.1f ms, %d tiles, slowest tile %.1f ms", frame.getMillis(), frame.tiles, frame.slowestTileNanos / 1e6));
+            lines.add(String.format("escape count sum %,d, %.1f M/s", frame.escapeCountSum, frame.getEscapeCountsPerSecond() / 1e6));
+            lines.add(String.format("escaped %.1f %%, max iterations %d", frame.getEscapedFraction() * 100, frame.viewport.maxIterations));
+            if(frame.supersampled > 0){
+                lines.add(String.format("supersampled %.1f %%", frame.getSupersampledFraction() * 100));
             }
         }
+        lines.add(String.format("cache %d hits, %d misses, %d MB", viewportCache.getHits(), viewportCache.getMisses(), viewportCache.getBytes() >> 20));
+        FrameWriter frameWriter = this.frameWriter;
+        if(frameWriter != null){
+            RenderMetrics.Latency encode = frameWriter.getEncodeLatency();
+            lines.add(String.format("encode %.1f ms avg, %.1f ms max, %d dropped", encode.getAverageMillis(), encode.getMaxMillis(), frameWriter.getDropped()));
+        }
+
+        FontMetrics fontMetrics = g2d.getFontMetrics();
+        int lineHeight = fontMetrics.getHeight();
+        int width = 0;
+        for(String line : lines){
+            width = Math.max(width, fontMetrics.stringWidth(line));
+        }
+        g2d.setColor(new Color(0, 0, 0, 160));
+        g2d.fillRect(4, 4, width + 8, lines.size() * lineHeight + 6);
+        g2d.setColor(Color.WHITE);
+        for(int i = 0; i < lines.size(); i++){
+            g2d.drawString(lines.get(i), 8, 6 + fontMetrics.getAscent() + i * lineHeight);
+        }
     }
 
     public void reset(){
-        middleR = -0.75;
-        middleI = 0;
+        middleR = new BigDecimal("-0.75");
+        middleI = BigDecimal.ZERO;
         rangeR = 3.5;
         rangeI = 2;
 
-        stateChanged = true;
-        repaint();
+        render();
     }
 
 
     private void zoom() {
+        BufferedImage snapshot = snapshotFrame();
         rangeR *= zoomFactor;
         rangeI *= zoomFactor;
-        stateChanged = true;
-        repaint();
+        render();
+        startZoomAnimation(snapshot, zoomFactor);
     }
 
 
     private void zoomOut() {
+        BufferedImage snapshot = snapshotFrame();
         rangeR /= zoomFactor;
         rangeI /= zoomFactor;
-        stateChanged = true;
-        repaint();
+        render();
+        startZoomAnimation(snapshot, 1 / zoomFactor);
     }
 
     public void setRecording(boolean selected) {
@@ -169,17 +635,47 @@ public class MandelbrotPanel extends JPanel implements MouseListener{
                 }
             }
         }
-        recording = selected;
-        recordCount = 0;
+        if(frameWriter != null){
+            frameWriter.finish();
+            frameWriter = null;
+        }
+        if(selected){
+            if(recordToFile){
+                try {
+                    //the recording file needs the frames in order, so there is only one writer thread
+                    RecordingFile.Writer writer = new RecordingFile.Writer(Path.of("pictures", "recording" + RecordingFile.EXTENSION), IMAGE_WIDTH, IMAGE_HEIGHT);
+                    frameWriter = new FrameWriter(writer, RECORDING_QUEUE_SIZE, 1, recordingBackpressure);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            else{
+                int encoders = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+                frameWriter = new FrameWriter(new File("pictures"), RECORDING_QUEUE_SIZE, encoders, recordingBackpressure);
+            }
+        }
+    }
+
+    //takes effect the next time recording is started
+    public void setRecordToFile(boolean recordToFile) {
+        this.recordToFile = recordToFile;
+    }
+
+    //BLOCK never loses a frame but can slow down rendering, DROP keeps the renderer going and counts the lost frames
+    public void setRecordingBackpressure(FrameWriter.Backpressure recordingBackpressure) {
+        this.recordingBackpressure = recordingBackpressure;
+    }
+
+    public int getDroppedFrames() {
+        FrameWriter frameWriter = this.frameWriter;
+        return frameWriter == null ? 0 : frameWriter.getDropped();
     }
 
     public class GoUp extends AbstractAction{
 
         @Override
         public void actionPerformed(ActionEvent e) {
-            middleI -= OFFSET * rangeI;
-            stateChanged = true;
-            repaint();
+            pan(0, -pixelsI(OFFSET * rangeI));
         }
     }
 
@@ -187,9 +683,7 @@ public class MandelbrotPanel extends JPanel implements MouseListener{
 
         @Override
         public void actionPerformed(ActionEvent e) {
-            middleI += OFFSET * rangeI;
-            stateChanged = true;
-            repaint();
+            pan(0, pixelsI(OFFSET * rangeI));
         }
     }
 
@@ -197,9 +691,7 @@ public class MandelbrotPanel extends JPanel implements MouseListener{
 
         @Override
         public void actionPerformed(ActionEvent e) {
-            middleR -= OFFSET * rangeI;
-            stateChanged = true;
-            repaint();
+            pan(-pixelsR(OFFSET * rangeI), 0);
         }
     }
 
@@ -207,9 +699,7 @@ public class MandelbrotPanel extends JPanel implements MouseListener{
 
         @Override
         public void actionPerformed(ActionEvent e) {
-            middleR += OFFSET * rangeI;
-            stateChanged = true;
-            repaint();
+            pan(pixelsR(OFFSET * rangeI), 0);
         }
     }
 
@@ -268,6 +758,102 @@ public class MandelbrotPanel extends JPanel implements MouseListener{
         return maxIterations;
     }
 
+    public boolean isAutoIterations() {
+        return autoIterations;
+    }
+
+    //let every finished frame choose maxIterations for the next frame
+    public void setAutoIterations(boolean autoIterations) {
+        this.autoIterations = autoIterations;
+    }
+
+    //how long a frame may take in auto mode, 0 for no limit
+    public void setFrameBudgetMillis(long frameBudget) {
+        iterationTuner.setFrameBudgetMillis(frameBudget);
+    }
+
+    //let remote workers compute the tiles, null renders on this machine again
+    public void setTileCluster(TileCluster tileCluster) {
+        renderEngine.setCluster(tileCluster);
+    }
+
+    public RenderMetrics getMetrics() {
+        return renderEngine.getMetrics();
+    }
+
+    public boolean isShowMetrics() {
+        return showMetrics;
+    }
+
+    public void setShowMetrics(boolean showMetrics) {
+        this.showMetrics = showMetrics;
+        repaint();
+    }
+
+    public IterationTuner getIterationTuner() {
+        return iterationTuner;
+    }
+
+    public void setFastPath(boolean fastPath) {
+        renderEngine.setFastPath(fastPath);
+        renderAgain();
+    }
+
+    public boolean isFastPath() {
+        return renderEngine.isFastPath();
+    }
+
+    public boolean isAnimateZoom() {
+        return animateZoom;
+    }
+
+    //scale the old image toward the clicked zoom while the new frame renders, then fade the new frame in
+    public void setAnimateZoom(boolean animateZoom) {
+        this.animateZoom = animateZoom;
+    }
+
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    public void setProgressive(boolean progressive) {
+        this.progressive = progressive;
+    }
+
+    //how long the first, reduced pass of a frame may take in progressive mode
+    public void setFrameTimeTargetMillis(long frameTimeTarget) {
+        this.frameTimeTarget = frameTimeTarget;
+    }
+
+    //samples per axis for pixels on edges of the set, 1 turns antialiasing off
+    public void setSupersampling(int supersampling) {
+        renderEngine.setSupersampling(supersampling);
+        renderAgain();
+    }
+
+    public int getSupersampling() {
+        return renderEngine.getSupersampling();
+    }
+
+    public void setRenderMode(RenderMode renderMode) {
+        renderEngine.setRenderMode(renderMode);
+        renderAgain();
+    }
+
+    //the cached frames were rendered with the old settings, so they must not be shown for the new ones
+    private void renderAgain() {
+        viewportCache.clear();
+        render();
+    }
+
+    public RenderMode getRenderMode() {
+        return renderEngine.getRenderMode();
+    }
+
+    public ViewportCache getViewportCache() {
+        return viewportCache;
+    }
+
     public double getZoomFactor() {
         return zoomFactor;
     }
@@ -0,0 +1,55 @@
+package Mandelbrot.Self;
+
+//compares Mariani-Silver renders with brute force renders of the same viewports and fails when too many pixels differ,
+//the Maven build runs it in the test phase: java Mandelbrot.Self.MarianiSilverCheck
+//filling a rectangle by its border can miss filaments that pass through it without touching the border, so a few pixels
+//may differ, but a broken subdivision differs in whole rectangles
+public class MarianiSilverCheck {
+
+    private static final int WIDTH = 540, HEIGHT = 300;
+    //largest allowed fraction of different pixels per viewport
+    private static final double MAX_DIFFERENT = 0.0001;
+
+    //name, middleR, middleI, rangeR, maxIterations
+    private static final Object[][] VIEWPORTS = {
+            {"home", -0.75, 0.0, 3.5, 1000},
+            {"seahorse valley", -0.7435, 0.1314, 0.0035, 1000},
+            //thin filaments between the bulbs, where the filling misses most
+            {"antenna", -1.25, 0.0, 0.5, 1000},
+            {"elephant valley", 0.28, 0.008, 0.01, 1000},
+            {"spiral", -0.7436438870, 0.1318259042, 2e-7, 5000},
+            //mostly interior, large rectangles get filled
+            {"deep interior", -0.122, 0.745, 0.0175, 1000}
+    };
+
+    public static void main(String[] args) {
+        RenderEngine engine = new RenderEngine();
+        boolean failed = false;
+        for(boolean fastPath : new boolean[]{false, true}){
+            engine.setFastPath(fastPath);
+            for(Object[] v : VIEWPORTS){
+                double rangeR = (double) v[3];
+                Viewport viewport = new Viewport((double) v[1], (double) v[2], rangeR, rangeR * HEIGHT / WIDTH, (int) v[4], WIDTH, HEIGHT);
+
+                engine.setRenderMode(RenderMode.BRUTE_FORCE);
+                int[] reference = engine.renderFrame(viewport);
+                engine.setRenderMode(RenderMode.MARIANI_SILVER);
+                int[] subdivided = engine.renderFrame(viewport);
+
+                int different = 0;
+                for(int i = 0; i < reference.length; i++){
+                    if(reference[i] != subdivided[i]){
+                        different++;
+                    }
+                }
+                boolean ok = different <= MAX_DIFFERENT * reference.length;
+                failed |= !ok;
+                System.out.printf("%-16s fast path %-5b %6d of %d pixels different %s%n", v[0], fastPath, different, reference.length, ok ? "" : "FAILED");
+            }
+        }
+        if(failed){
+            System.err.println("Mariani-Silver differs from brute force in more than " + MAX_DIFFERENT * 100 + "% of the pixels");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package Mandelbrot.Self;
+
+//lookup table with the ARGB color of every possible iteration count, so coloring a pixel is a single array access
+public class Palette {
+
+    public final int red, green, blue;
+    public final int maxIterations;
+    private final int[] colors;
+
+    public Palette(int red, int green, int blue, int maxIterations){
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+        this.maxIterations = maxIterations;
+
+        colors = new int[maxIterations + 1];
+        for(int i = 0; i <= maxIterations; i++){
+            colors[i] = computeColor(i);
+        }
+    }
+
+    private int computeColor(int iteration){
+        double t = (double)iteration / (double) maxIterations;
+
+        int red = (int)(9 * (1 - t)*t*t*t * this.red);
+        int green = (int)(15 * (1 - t)*(1 - t)*t*t * this.green);
+        int blue = (int)(8.5*(1 - t)*(1 - t)*(1 - t)*t * this.blue);
+
+        return 0xFF000000 | red << 16 | green << 8 | blue;
+    }
+
+    public int color(int iteration){
+        return colors[iteration];
+    }
+
+    //color length pixels starting at offset from their iteration counts
+    public void apply(int[] iterations, int[] pixels, int offset, int length){
+        for(int i = offset; i < offset + length; i++){
+            pixels[i] = colors[iterations[i]];
+        }
+    }
+
+    //same as apply, but pixels that have samples get the average color of their samples
+    public void apply(int[] iterations, int[][] samples, int[] pixels, int offset, int length){
+        for(int i = offset; i < offset + length; i++){
+            int[] pixelSamples = samples[i];
+            if(pixelSamples == null){
+                pixels[i] = colors[iterations[i]];
+                continue;
+            }
+            int red = 0, green = 0, blue = 0;
+            for(int sample : pixelSamples){
+                int color = colors[sample];
+                red += color >> 16 & 0xFF;
+                green += color >> 8 & 0xFF;
+                blue += color & 0xFF;
+            }
+            int count = pixelSamples.length;
+            pixels[i] = 0xFF000000 | red / count << 16 | green / count << 8 | blue / count;
+        }
+    }
+
+    public boolean matches(int red, int green, int blue, int maxIterations){
+        return this.red == red && this.green == green && this.blue == blue && this.maxIterations == maxIterations;
+    }
+}
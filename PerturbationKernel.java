@@ -0,0 +1,103 @@
+package Mandelbrot.Self;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+
+//deep zoom kernel: one reference orbit at the center of the viewport is computed with BigDecimal,
+//every pixel only iterates its distance to that orbit with doubles
+public class PerturbationKernel implements PixelKernel {
+
+    //below this pixel size the double-double kernel is not accurate anymore at high iteration counts,
+    //its rounding errors grow with every iteration and at 20000 iterations they already change counts at 1e-22
+    public static final double PIXEL_SIZE_LIMIT = 1e-20;
+
+    private final Viewport viewport;
+    //reference orbit Z_0 ... Z_n, the last value is the one that escaped when the center is not in the set
+    private double[] referenceR, referenceI;
+
+    public PerturbationKernel(Viewport viewport){
+        this.viewport = viewport;
+    }
+
+    public static boolean isNeeded(Viewport viewport){
+        return PixelKernel.pixelSize(viewport) < PIXEL_SIZE_LIMIT;
+    }
+
+    //computes the reference orbit once, every tile calls this before it uses the kernel
+    @Override
+    public synchronized void prepare(){
+        if(referenceR != null){
+            return;
+        }
+        double pixelSize = Math.min(viewport.rangeR / viewport.width, viewport.rangeI / viewport.height);
+        MathContext mathContext = new MathContext(Math.max(20, (int)-Math.log10(pixelSize) + 20));
+
+        double[] orbitR = new double[viewport.maxIterations + 1];
+        double[] orbitI = new double[viewport.maxIterations + 1];
+        BigDecimal zReal = BigDecimal.ZERO;
+        BigDecimal zImaginary = BigDecimal.ZERO;
+        int length = 1;
+        for(int i = 0; i < viewport.maxIterations; i++){
+            BigDecimal zReal2 = zReal.multiply(zReal, mathContext);
+            BigDecimal zImaginary2 = zImaginary.multiply(zImaginary, mathContext);
+            if(zReal2.add(zImaginary2).doubleValue() > 4.0){
+                break;
+            }
+            BigDecimal newZReal = zReal2.subtract(zImaginary2).add(viewport.centerR, mathContext);
+            zImaginary = zReal.multiply(zImaginary).multiply(BigDecimal.valueOf(2)).add(viewport.centerI, mathContext);
+            zReal = newZReal;
+            orbitR[length] = zReal.doubleValue();
+            orbitI[length] = zImaginary.doubleValue();
+            length++;
+        }
+
+        referenceR = Arrays.copyOf(orbitR, length);
+        referenceI = Arrays.copyOf(orbitI, length);
+    }
+
+    //escape time of a pixel, counted the same way as RenderEngine.iterate
+    @Override
+    public int iterate(double x, double y){
+        double[] referenceR = this.referenceR;
+        double[] referenceI = this.referenceI;
+        int last = referenceR.length - 1;
+
+        double dcReal = viewport.deltaReal(x);
+        double dcImaginary = viewport.deltaImaginary(y);
+        double dzReal = 0;
+        double dzImaginary = 0;
+        double zReal = 0;
+        double zImaginary = 0;
+        int m = 0;
+
+        int iteration = 0;
+        while(iteration < viewport.maxIterations){
+            if(zReal * zReal + zImaginary * zImaginary > 4.0){
+                break;
+            }
+
+            //dz' = 2 Z dz + dz^2 + dc
+            double referenceReal = referenceR[m];
+            double referenceImaginary = referenceI[m];
+            double newDzReal = 2 * (referenceReal * dzReal - referenceImaginary * dzImaginary) + dzReal * dzReal - dzImaginary * dzImaginary + dcReal;
+            dzImaginary = 2 * (referenceReal * dzImaginary + referenceImaginary * dzReal) + 2 * dzReal * dzImaginary + dcImaginary;
+            dzReal = newDzReal;
+            m++;
+            iteration++;
+
+            zReal = referenceR[m] + dzReal;
+            zImaginary = referenceI[m] + dzImaginary;
+
+            //glitch detection: when z gets smaller than dz the difference to the reference loses its precision,
+            //the same happens when the reference orbit escaped before this pixel did
+            //rebase: continue with z as the new difference to the start of the reference orbit (Z_0 = 0)
+            if(m == last || zReal * zReal + zImaginary * zImaginary < dzReal * dzReal + dzImaginary * dzImaginary){
+                dzReal = zReal;
+                dzImaginary = zImaginary;
+                m = 0;
+            }
+        }
+        return iteration;
+    }
+}
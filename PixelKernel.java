@@ -0,0 +1,33 @@
+package Mandelbrot.Self;
+
+//escape time of single pixels of one viewport, for zoom depths where the plain double kernels are not exact enough anymore
+public interface PixelKernel {
+
+    //called by every tile before it uses the kernel, expensive setup only happens the first time
+    default void prepare(){
+    }
+
+    //escape time of the point at pixel (x, y) of the frame, fractions of a pixel are allowed, counted the same way as RenderEngine.iterate
+    int iterate(double x, double y);
+
+    //true when the pixels of the viewport are too small for doubles
+    static boolean isNeeded(Viewport viewport){
+        return pixelSize(viewport) < DoubleDoubleKernel.PIXEL_SIZE_LIMIT;
+    }
+
+    //kernel for the depth of the viewport, null when doubles are enough
+    //double-double arithmetic until its precision runs out too, the perturbation kernel below that
+    static PixelKernel of(Viewport viewport, boolean fastPath){
+        if(PerturbationKernel.isNeeded(viewport)){
+            return new PerturbationKernel(viewport);
+        }
+        if(isNeeded(viewport)){
+            return new DoubleDoubleKernel(viewport, fastPath);
+        }
+        return null;
+    }
+
+    static double pixelSize(Viewport viewport){
+        return Math.min(viewport.rangeR / viewport.width, viewport.rangeI / viewport.height);
+    }
+}
@@ -1,20 +1,35 @@
 package Mandelbrot.Self;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class Player extends JFrame {
 
-    private int delayTime = 25, delayMaximum = 500;
+    //time between two pictures in milliseconds, 20 means 50 pictures per second
+    private volatile int delayTime = 25;
+    private final int delayMinimum = 10, delayMaximum = 500;
+    //zoom factor the frames were recorded with and the number of interpolated frames shown between two recorded ones
+    private volatile double zoomFactor = 0.8;
+    private volatile int inBetweenFrames = 0;
     private final int WIDTH = 600, HEIGHT = 600;
+    //number of frames that are kept decoded around the play head
+    private static final int FRAME_BUFFER_SIZE = 32;
+    private static final int DECODER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
     PicturePanel picturePanel = new PicturePanel();
     Thread thread = new Thread(picturePanel);
     String directoryPath = "";
+    //measured pictures per second and dropped pictures, updated twice a second while playing
+    private final JLabel statusLabel = new JLabel(" ");
+    private final Timer statusTimer = new Timer(500, e -> updateStatus());
+    private long statusPainted, statusNanos;
 
     public Player() {
         super("Mandelbrot - Player");
@@ -50,7 +65,8 @@ public class Player extends JFrame {
         JButton openFolderButton = new JButton("Open Folder");
         openFolderButton.addActionListener(e -> {
             JFileChooser openFolderChooser = new JFileChooser();
-            openFolderChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            //a folder with pictures or a single recording file
+            openFolderChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
             openFolderChooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
             openFolderChooser.setAcceptAllFileFilterUsed(false);
             if (openFolderChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
@@ -59,18 +75,38 @@ public class Player extends JFrame {
         });
 
         //setup slider for zoom delay
-        JSlider speedSlider = new JSlider(JSlider.HORIZONTAL, delayTime, delayMaximum, delayTime);
+        JSlider speedSlider = new JSlider(JSlider.HORIZONTAL, delayMinimum, delayMaximum, delayTime);
         speedSlider.addChangeListener(e -> changeSpeed(speedSlider.getValue()));
 
+        //interpolated frames between two recorded ones, a few recorded frames then play as a smooth zoom
+        JSpinner inBetweenSpinner = new JSpinner(new SpinnerNumberModel(inBetweenFrames, 0, 16, 1));
+        inBetweenSpinner.setToolTipText("Interpolated frames between recorded frames");
+        inBetweenSpinner.addChangeListener(e -> inBetweenFrames = (Integer) inBetweenSpinner.getValue());
+        JTextField zoomFactorTextField = new JTextField(String.valueOf(zoomFactor), 3);
+        zoomFactorTextField.setToolTipText("Zoom factor of the recording");
+        zoomFactorTextField.addActionListener(e -> {
+            try {
+                double value = Double.parseDouble(zoomFactorTextField.getText());
+                if(value > 0 && value < 1){
+                    zoomFactor = value;
+                }
+            } catch (NumberFormatException ignored) {
+            }
+            zoomFactorTextField.setText(String.valueOf(zoomFactor));
+        });
+
         //add elements to the control panel
         controlPanel.add(openFolderButton);
         controlPanel.add(startButton);
         controlPanel.add(speedSlider);
+        controlPanel.add(inBetweenSpinner);
+        controlPanel.add(zoomFactorTextField);
         controlPanel.add(stopButton);
 
         //add elements to the frame
         this.add(picturePanel, BorderLayout.CENTER);
         this.add(controlPanel, BorderLayout.SOUTH);
+        this.add(statusLabel, BorderLayout.NORTH);
 
         this.setLocationRelativeTo(null);
         this.setVisible(true);
@@ -81,37 +117,77 @@ public class Player extends JFrame {
     }
 
     private void showPictures() {
+        FrameSource frameSource = openFrames();
+        if (frameSource == null) {
+            return;
+        }
+
+        //restart thread when it got stopped before
+        if (thread.getState() != Thread.State.NEW) {
+            thread = new Thread(picturePanel);
+            picturePanel.running = true;
+        }
+        picturePanel.setFrameLoader(new FrameLoader(frameSource, FRAME_BUFFER_SIZE, DECODER_THREADS));
+
+        thread.start();
+        statusPainted = picturePanel.getPainted();
+        statusNanos = System.nanoTime();
+        statusTimer.start();
+    }
+
+    private void updateStatus() {
+        long painted = picturePanel.getPainted();
+        long now = System.nanoTime();
+        double fps = (painted - statusPainted) * 1e9 / (now - statusNanos);
+        statusPainted = painted;
+        statusNanos = now;
+        statusLabel.setText(String.format("%.1f fps, %d dropped", fps, picturePanel.getDropped()));
+    }
 
-        //get files from directory
+    //frames of the selected recording file or folder, null when there are none
+    private FrameSource openFrames() {
         File directory = new File(directoryPath);
+        if (directory.isFile() && directory.getName().endsWith(RecordingFile.EXTENSION)) {
+            try {
+                RecordingFile.Reader reader = new RecordingFile.Reader(directory.toPath());
+                if (reader.size() > 0) {
+                    return reader;
+                }
+                reader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+
+        //get files from directory, the frames are only decoded while playing
         File[] images = directory.listFiles();
-        ArrayList<BufferedImage> imageArrayList = new ArrayList<>();
-        try{
-            assert images != null;
+        ArrayList<File> imageFiles = new ArrayList<>();
+        if (images != null) {
             for (File image : images) {
                 //if file is a file and an image then add to ArrayList
                 if (image.isFile() && (image.getName().endsWith("jpg") || image.getName().endsWith("png"))) {
-                    try {
-                        imageArrayList.add(ImageIO.read(image));
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
+                    imageFiles.add(image);
                 }
             }
         }
-        catch (Exception ignored) { }
+        //recorded frames are called <number>.png, so sort them by number
+        imageFiles.sort(Comparator.comparingLong(Player::frameNumber).thenComparing(File::getName));
+        return imageFiles.isEmpty() ? null : FrameSource.of(imageFiles);
+    }
 
-        //restart thread when it got stopped before
-        if (thread.getState() != Thread.State.NEW) {
-            thread = new Thread(picturePanel);
-            picturePanel.running = true;
+    private static long frameNumber(File file) {
+        String name = file.getName();
+        int extension = name.lastIndexOf('.');
+        try {
+            return Long.parseLong(extension < 0 ? name : name.substring(0, extension));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
         }
-        picturePanel.setImages(imageArrayList);
-
-        thread.start();
     }
 
     private void stopThread() {
+        statusTimer.stop();
         picturePanel.terminate();
         try {
             thread.join();
@@ -126,15 +202,42 @@ public class Player extends JFrame {
 
 
 
+    //one picture of the playback: a recorded frame, or a frame between image and next when next is set
+    private static class Presentation {
+        final BufferedImage image;
+        final BufferedImage next;
+        final double ratio;
+        final double fraction;
+
+        Presentation(BufferedImage image, BufferedImage next, double ratio, double fraction) {
+            this.image = image;
+            this.next = next;
+            this.ratio = ratio;
+            this.fraction = fraction;
+        }
+    }
+
+    //plays the frames on a timeline: picture n is due at start + n * delayTime, pictures that are already late are dropped
     private class PicturePanel extends JPanel implements Runnable {
-        private ArrayList<BufferedImage> images;
-        private BufferedImage currentImage;
-        private boolean running;
+        private FrameLoader frameLoader;
+        private volatile boolean running;
         private int i = 0;
+        //interpolated picture between frame i and the next one, 0 for frame i itself
+        private int step = 0;
         //mode to restart at the same moment than stopped
         //true -> zoom in; false -> zoom out
         private boolean mode = true;
 
+        //written by the playback thread, painted on the event dispatch thread
+        private volatile Presentation presentation;
+        private volatile Presentation lastPainted;
+        private final AtomicLong painted = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        //accelerated copies of the last two frames, the interpolation draws two at a time
+        private final BufferedImage[] sources = new BufferedImage[2];
+        private final VolatileImage[] volatileImages = new VolatileImage[2];
+
         public PicturePanel() {
             this.setSize(new Dimension(WIDTH, HEIGHT - 100));
             running = true;
@@ -146,61 +249,157 @@ public class Player extends JFrame {
 
         @Override
         public void run() {
-            while(true) {
-                if(mode) {
-                    while (i < images.size()) {
-                        if (!running) {
-                            break;
-                        }
-                        currentImage = images.get(i);
-                        repaint();
-                        try {
-                            Thread.sleep(delayTime);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-
-                        i++;
-                    }
-                    if (!running) {
-                        break;
-                    }
-                    mode = !mode;
+            int delay = delayTime;
+            long start = System.nanoTime();
+            long picture = 0;
+            while (running) {
+                //a new speed starts a new timeline at the current picture
+                if (delay != delayTime) {
+                    delay = delayTime;
+                    start = System.nanoTime();
+                    picture = 0;
                 }
-                i--;
-
-                while (i > 0) {
-                    if (!running) {
-                        break;
-                    }
-                    currentImage = images.get(i);
-                    repaint();
-                    try {
-                        Thread.sleep(delayTime);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                    i--;
+                long period = delay * 1_000_000L;
+                long due = start + picture * period;
+                long now = System.nanoTime();
+                if (now < due) {
+                    LockSupport.parkNanos(due - now);
+                    continue;
                 }
-                if (!running) {
-                    break;
+                //pictures whose time is over are skipped without decoding them
+                long late = (now - due) / period;
+                for (long k = 0; k < late; k++) {
+                    advance();
                 }
+                dropped.addAndGet(late);
+                picture += late;
+
+                present();
+                advance();
+                picture++;
+            }
+        }
+
+        private int nextFrame() {
+            return mode ? i + 1 : i - 1;
+        }
+
+        //move the play head to the next picture, the direction turns at the first and the last frame
+        private void advance() {
+            int size = frameLoader.size();
+            if (size < 2) {
+                return;
+            }
+            if (nextFrame() < 0 || nextFrame() >= size) {
+                mode = !mode;
+            }
+            if (step < inBetweenFrames) {
+                step++;
+                return;
+            }
+            step = 0;
+            i = nextFrame();
+            if (i == 0 || i == size - 1) {
                 mode = !mode;
             }
         }
 
+        private void present() {
+            frameLoader.prefetch(i, mode);
+            BufferedImage image = frameLoader.get(i);
+            Presentation next;
+            int nextFrame = nextFrame();
+            if (step == 0 || nextFrame < 0 || nextFrame >= frameLoader.size()) {
+                next = new Presentation(image, null, 1, 0);
+            } else {
+                //zooming in makes the range of the next frame smaller
+                double ratio = mode ? zoomFactor : 1 / zoomFactor;
+                double fraction = (double) step / (Math.max(step, inBetweenFrames) + 1);
+                next = new Presentation(image, frameLoader.get(nextFrame), ratio, fraction);
+            }
+            //the event dispatch thread didn't get to the last one, it is never shown
+            Presentation previous = presentation;
+            if (previous != null && previous != lastPainted) {
+                dropped.incrementAndGet();
+            }
+            presentation = next;
+            repaint();
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
+            Presentation shown = presentation;
+            if (shown == null) {
+                return;
+            }
             Graphics2D g2d = (Graphics2D) g.create();
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2d.drawImage(currentImage, 0, 0, null);
-            this.setVisible(true);
+            Image image = accelerated(shown.image, shown.next);
+            if (shown.next != null) {
+                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                ZoomInterpolation.drawBetween(g2d, image, accelerated(shown.next, shown.image), shown.ratio, shown.fraction);
+            } else {
+                g2d.drawImage(image, 0, 0, null);
+            }
+            g2d.dispose();
+            if (shown != lastPainted) {
+                lastPainted = shown;
+                painted.incrementAndGet();
+            }
+        }
+
+        //copy of source in video memory, the copy is only made again when the frame changes or the contents got lost
+        //falls back to source when no accelerated image can be made
+        private Image accelerated(BufferedImage source, BufferedImage other) {
+            int slot = sources[0] == source ? 0 : sources[1] == source ? 1 : sources[0] == other ? 1 : 0;
+            VolatileImage volatileImage = volatileImages[slot];
+            int valid = volatileImage == null ? VolatileImage.IMAGE_INCOMPATIBLE : volatileImage.validate(getGraphicsConfiguration());
+            if (valid == VolatileImage.IMAGE_INCOMPATIBLE
+                    || volatileImage.getWidth() != source.getWidth() || volatileImage.getHeight() != source.getHeight()) {
+                if (volatileImage != null) {
+                    volatileImage.flush();
+                }
+                volatileImage = createVolatileImage(source.getWidth(), source.getHeight());
+                volatileImages[slot] = volatileImage;
+                sources[slot] = null;
+                if (volatileImage == null) {
+                    return source;
+                }
+            } else if (valid == VolatileImage.IMAGE_RESTORED) {
+                sources[slot] = null;
+            }
+            if (sources[slot] != source) {
+                Graphics2D g2d = volatileImage.createGraphics();
+                g2d.drawImage(source, 0, 0, null);
+                g2d.dispose();
+                sources[slot] = source;
+            }
+            if (volatileImage.contentsLost()) {
+                sources[slot] = null;
+                return source;
+            }
+            return volatileImage;
+        }
+
+        //GETTER
+        public long getPainted() {
+            return painted.get();
+        }
+
+        public long getDropped() {
+            return dropped.get();
         }
 
         //SETTER
-        public void setImages(ArrayList<BufferedImage> images) {
-            this.images = images;
+        public void setFrameLoader(FrameLoader frameLoader) {
+            if (this.frameLoader != null) {
+                this.frameLoader.close();
+            }
+            this.frameLoader = frameLoader;
+            if (i >= frameLoader.size()) {
+                i = frameLoader.size() - 1;
+                step = 0;
+            }
         }
     }
 
@@ -0,0 +1,38 @@
+package Mandelbrot.Self;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//converts a recording file back into one <frame>.png per frame
+//java Mandelbrot.Self.RecordingExport pictures/recording.mbr pictures
+public class RecordingExport {
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if(args.length != 2){
+            System.err.println("Usage: RecordingExport <recording file> <output folder>");
+            System.exit(1);
+        }
+
+        try (RecordingFile.Reader reader = new RecordingFile.Reader(Path.of(args[0]))) {
+            File outputDirectory = new File(args[1]);
+            Files.createDirectories(outputDirectory.toPath());
+
+            FrameWriter frameWriter = new FrameWriter(outputDirectory, 8, Runtime.getRuntime().availableProcessors(), FrameWriter.Backpressure.BLOCK);
+            for(int i = 0; i < reader.size(); i++){
+                int[] pixels = new int[reader.getWidth() * reader.getHeight()];
+                reader.read(i, pixels);
+                frameWriter.submit(i, pixels, reader.getWidth(), reader.getHeight());
+            }
+            frameWriter.close();
+            System.out.println(frameWriter.getWritten() + " frames exported to " + outputDirectory);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
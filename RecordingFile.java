@@ -0,0 +1,160 @@
+package Mandelbrot.Self;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//recording that keeps all frames in one file
+//header: magic, version, width, height, frame count (ints), then the ARGB pixels of every frame row by row
+//all frames have the same size, so frame n starts at HEADER_SIZE + n * frame size and can be found without an index table
+public class RecordingFile {
+
+    public static final String EXTENSION = ".mbr";
+    private static final int MAGIC = 0x4D425243; //MBRC
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int FRAME_COUNT_POSITION = 16;
+
+    private static long frameBytes(int width, int height){
+        return (long) width * height * Integer.BYTES;
+    }
+
+    //appends frames to a new recording file, the frame count in the header is updated after every frame
+    public static class Writer implements FrameSink {
+
+        private final FileChannel channel;
+        private final int width, height;
+        private final ByteBuffer frameBuffer;
+        private int frameCount = 0;
+
+        public Writer(Path path, int width, int height) throws IOException {
+            this.width = width;
+            this.height = height;
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            frameBuffer = ByteBuffer.allocateDirect((int) frameBytes(width, height));
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(0).flip();
+            writeFully(header, 0);
+        }
+
+        //the frames have to come in order, the FrameWriter has to use a single encoder thread for this sink
+        @Override
+        public synchronized void write(int number, int[] pixels, int width, int height) throws IOException {
+            if(width != this.width || height != this.height){
+                throw new IOException("Frame has " + width + "x" + height + " pixels, the recording " + this.width + "x" + this.height);
+            }
+            if(number != frameCount){
+                throw new IOException("Frame " + number + " is out of order, expected frame " + frameCount);
+            }
+            append(pixels);
+        }
+
+        public synchronized void append(int[] pixels) throws IOException {
+            frameBuffer.clear();
+            frameBuffer.asIntBuffer().put(pixels);
+            writeFully(frameBuffer, HEADER_SIZE + frameCount * frameBytes(width, height));
+            frameCount++;
+
+            ByteBuffer count = ByteBuffer.allocate(Integer.BYTES);
+            count.putInt(frameCount).flip();
+            writeFully(count, FRAME_COUNT_POSITION);
+        }
+
+        private void writeFully(ByteBuffer buffer, long position) throws IOException {
+            while(buffer.hasRemaining()){
+                position += channel.write(buffer, position);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    //reads the frames of a recording file through memory mapped segments, every frame is a single copy out of the mapping
+    public static class Reader implements FrameSource {
+
+        private final FileChannel channel;
+        private final int width, height;
+        private final int frameCount;
+        private final int framesPerSegment;
+        private final MappedByteBuffer[] segments;
+
+        public Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while(header.hasRemaining()){
+                if(channel.read(header, header.position()) < 0){
+                    channel.close();
+                    throw new IOException(path + " is not a recording file");
+                }
+            }
+            header.flip();
+            if(header.getInt() != MAGIC || header.getInt() != VERSION){
+                channel.close();
+                throw new IOException(path + " is not a recording file");
+            }
+            width = header.getInt();
+            height = header.getInt();
+
+            //when the recorder crashed the header may not count the last frame yet, an incomplete frame is ignored
+            long frameBytes = frameBytes(width, height);
+            long completeFrames = (channel.size() - HEADER_SIZE) / frameBytes;
+            frameCount = (int) Math.min(header.getInt(), completeFrames);
+
+            //a single mapping can't be bigger than 2 GB
+            framesPerSegment = (int) Math.max(1, Integer.MAX_VALUE / frameBytes);
+            segments = new MappedByteBuffer[(frameCount + framesPerSegment - 1) / framesPerSegment];
+        }
+
+        @Override
+        public int size() {
+            return frameCount;
+        }
+
+        @Override
+        public BufferedImage read(int index) throws IOException {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            read(index, ((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+            return image;
+        }
+
+        public void read(int index, int[] pixels) throws IOException {
+            if(index < 0 || index >= frameCount){
+                throw new IndexOutOfBoundsException("Frame " + index + " of " + frameCount);
+            }
+            ByteBuffer frame = segment(index / framesPerSegment).duplicate();
+            frame.position((int) ((index % framesPerSegment) * frameBytes(width, height)));
+            frame.asIntBuffer().get(pixels, 0, width * height);
+        }
+
+        private synchronized MappedByteBuffer segment(int segment) throws IOException {
+            if(segments[segment] == null){
+                long frameBytes = frameBytes(width, height);
+                int frames = Math.min(framesPerSegment, frameCount - segment * framesPerSegment);
+                segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + segment * framesPerSegment * frameBytes, frames * frameBytes);
+            }
+            return segments[segment];
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package Mandelbrot.Self;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//benchmark suite for the rendering hot paths, run with: java Mandelbrot.Self.RenderBenchmark [--json results.json] [group...]
+//groups: render, coloring, png, fastpath, marianisilver, vector, deepzoom, all of them run when none is given
+//with --json the results are also written as JSON, so runs of different versions can be compared
+//the JIT can remove the Color allocations of the baseline through escape analysis when it inlines everything,
+//add -XX:-DoEscapeAnalysis to see the allocation rate the panel had before the palette lookup table
+public class RenderBenchmark {
+
+    private static final int WIDTH = 1080, HEIGHT = 600;
+    private static final int WARMUP = 5, RUNS = 20, RENDER_RUNS = 3;
+
+    //viewports for the full frame renders: name, middleR, middleI, rangeR, rangeI
+    private static final Object[][] VIEWPORTS = {
+            {"home", -0.75, 0.0, 3.5, 2.0},
+            {"seahorse valley", -0.7435, 0.1314, 0.0035, 0.002},
+            //inside the period-3 bulb, nothing escapes and the cardioid/bulb test does not help
+            {"deep interior", -0.122, 0.745, 0.0175, 0.01}
+    };
+    private static final int[] MAX_ITERATIONS = {100, 1000, 5000};
+
+    private final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final List<String> results = new ArrayList<>();
+    private String group = "";
+
+    public static void main(String[] args) {
+        RenderBenchmark benchmark = new RenderBenchmark();
+        Map<String, Runnable> groups = new LinkedHashMap<>();
+        groups.put("render", benchmark::render);
+        groups.put("coloring", benchmark::coloring);
+        groups.put("png", benchmark::png);
+        groups.put("fastpath", benchmark::fastPath);
+        groups.put("marianisilver", benchmark::marianiSilver);
+        groups.put("vector", benchmark::vectorKernel);
+        groups.put("deepzoom", benchmark::deepZoom);
+
+        Path jsonFile = null;
+        List<String> selected = new ArrayList<>();
+        for(int i = 0; i < args.length; i++){
+            if(args[i].equals("--json") && i + 1 < args.length){
+                jsonFile = Path.of(args[++i]);
+            }
+            else if(groups.containsKey(args[i])){
+                selected.add(args[i]);
+            }
+            else{
+                System.err.println("Unknown benchmark " + args[i] + ", known are " + groups.keySet());
+                System.exit(1);
+            }
+        }
+        if(selected.isEmpty()){
+            selected.addAll(groups.keySet());
+        }
+
+        for(String name : selected){
+            benchmark.group = name;
+            groups.get(name).run();
+        }
+
+        if(jsonFile != null){
+            try {
+                benchmark.writeJson(jsonFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+    }
+
+    //full frame renders with the default settings of the panel
+    private void render(){
+        RenderEngine engine = new RenderEngine();
+        for(Object[] v : VIEWPORTS){
+            for(int maxIterations : MAX_ITERATIONS){
+                Viewport viewport = new Viewport((double) v[1], (double) v[2], (double) v[3], (double) v[4], maxIterations, WIDTH, HEIGHT);
+                measure("render " + v[0] + ", " + maxIterations + " iterations", 1, RENDER_RUNS, () -> engine.renderFrame(viewport));
+            }
+        }
+    }
+
+    //encoding a recorded frame like the FrameWriter does and decoding it like the Player does
+    private void png(){
+        Viewport viewport = new Viewport(-0.7435, 0.1314, 0.0035, 0.002, 1000, WIDTH, HEIGHT);
+        int[] iterations = new RenderEngine().renderFrame(viewport);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        new Palette(200, 200, 200, 1000).apply(iterations, ((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, iterations.length);
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        measure("png encode", 1, RUNS / 2, () -> {
+            encoded.reset();
+            try {
+                ImageIO.write(image, "png", encoded);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        byte[] bytes = encoded.toByteArray();
+        measure("png decode", 1, RUNS / 2, () -> {
+            try {
+                ImageIO.read(new ByteArrayInputStream(bytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    //scalar kernel against the Vector API kernel, needs --add-modules jdk.incubator.vector
+    private void vectorKernel(){
+        if(!RenderEngine.isVectorKernelAvailable()){
+            System.out.println("vector kernel not available, run with --add-modules jdk.incubator.vector");
+            return;
+        }
+        RenderEngine engine = new RenderEngine();
+        engine.setFastPath(false);
+        for(int maxIterations : new int[]{1000, 5000}){
+            compareKernels(engine, "", new Viewport(-0.7435, 0.1314, 0.0035, 0.002, maxIterations, WIDTH, HEIGHT));
+        }
+        //mostly interior pixels that are not in the cardioid or the bulb, only the periodicity check stops them early
+        engine.setFastPath(true);
+        compareKernels(engine, "interior, fast path, ", new Viewport(-0.122, 0.745, 0.0175, 0.01, 10000, WIDTH, HEIGHT));
+    }
+
+    private void compareKernels(RenderEngine engine, String name, Viewport viewport){
+        engine.setVectorKernel(false);
+        int[] reference = engine.renderFrame(viewport);
+        measure("scalar kernel, " + name + viewport.maxIterations + " iterations", 1, RENDER_RUNS, () -> engine.renderFrame(viewport));
+
+        engine.setVectorKernel(true);
+        boolean identical = Arrays.equals(reference, engine.renderFrame(viewport));
+        measure("vector kernel, " + name + viewport.maxIterations + " iterations", 1, RENDER_RUNS, () -> engine.renderFrame(viewport));
+        System.out.println("vector kernel gives the same image: " + identical);
+    }
+
+    //full frames at the depths of the double, double-double and perturbation kernels
+    private void deepZoom(){
+        RenderEngine engine = new RenderEngine();
+        BigDecimal centerR = new BigDecimal("-0.743643887037158704752191506114774");
+        BigDecimal centerI = new BigDecimal("0.131825904205311970493132056385139");
+        for(double range : new double[]{1e-9, 1e-12, 1e-16, 1e-30}){
+            Viewport viewport = new Viewport(centerR, centerI, range, range * HEIGHT / WIDTH, 3000, WIDTH, HEIGHT);
+            PixelKernel kernel = PixelKernel.of(viewport, true);
+            String name = kernel == null ? "double" : kernel.getClass().getSimpleName();
+            measure("range " + range + ", " + name, 1, RENDER_RUNS, () -> engine.renderFrame(viewport));
+        }
+    }
+
+    //Mariani-Silver against brute force, counts the pixels that differ
+    private void marianiSilver(){
+        RenderEngine engine = new RenderEngine();
+        engine.setVectorKernel(false);
+        //the last two have thin filaments, where filling a rectangle by its border misses a few pixels
+        double[][] viewports = {{-0.75, 0, 3.5, 2}, {-0.7435, 0.1314, 0.0035, 0.002},
+                {-1.25, 0, 0.5, 0.5 * HEIGHT / WIDTH}, {0.28, 0.008, 0.01, 0.01 * HEIGHT / WIDTH}};
+        for(double[] v : viewports){
+            Viewport viewport = new Viewport(v[0], v[1], v[2], v[3], 1000, WIDTH, HEIGHT);
+
+            engine.setRenderMode(RenderMode.BRUTE_FORCE);
+            int[] reference = engine.renderFrame(viewport);
+            measure("brute force at " + v[0] + ", " + v[1], 1, RENDER_RUNS, () -> engine.renderFrame(viewport));
+
+            engine.setRenderMode(RenderMode.MARIANI_SILVER);
+            int[] subdivided = engine.renderFrame(viewport);
+            measure("Mariani-Silver at " + v[0] + ", " + v[1], 1, RENDER_RUNS, () -> engine.renderFrame(viewport));
+
+            int different = 0;
+            for(int i = 0; i < reference.length; i++){
+                if(reference[i] != subdivided[i]){
+                    different++;
+                }
+            }
+            System.out.println("Mariani-Silver pixels different from brute force: " + different + " of " + reference.length);
+        }
+    }
+
+    //full frame render with the fast path turned off and on
+    private void fastPath(){
+        RenderEngine engine = new RenderEngine();
+        engine.setVectorKernel(false);
+        for(int maxIterations : new int[]{1000, 5000}){
+            Viewport viewport = new Viewport(-0.75, 0, 3.5, 2, maxIterations, WIDTH, HEIGHT);
+
+            engine.setFastPath(false);
+            int[] reference = engine.renderFrame(viewport);
+            measure("render " + maxIterations + " iterations, plain", 1, RENDER_RUNS, () -> engine.renderFrame(viewport));
+
+            engine.setFastPath(true);
+            boolean identical = Arrays.equals(reference, engine.renderFrame(viewport));
+            measure("render " + maxIterations + " iterations, fast path", 1, RENDER_RUNS, () -> engine.renderFrame(viewport));
+            System.out.println("fast path gives the same image: " + identical);
+        }
+    }
+
+    //coloring one frame with a new Color per pixel (like before) against the palette lookup table
+    private void coloring(){
+        int maxIterations = 1000;
+        Viewport viewport = new Viewport(-0.75, 0, 3.5, 2, maxIterations, WIDTH, HEIGHT);
+        int[] iterations = new int[WIDTH * HEIGHT];
+        for(int y = 0; y < HEIGHT; y++){
+            for(int x = 0; x < WIDTH; x++){
+                iterations[y * WIDTH + x] = RenderEngine.iterate(viewport.real(x), viewport.imaginary(y), maxIterations);
+            }
+        }
+        int[] pixels = new int[WIDTH * HEIGHT];
+
+        measure("coloring, Color per pixel", () -> {
+            for(int i = 0; i < pixels.length; i++){
+                pixels[i] = computeColor(iterations[i], maxIterations, 200, 200, 200).getRGB();
+            }
+        });
+        measure("coloring, palette lookup table", () -> {
+            new Palette(200, 200, 200, maxIterations).apply(iterations, pixels, 0, pixels.length);
+        });
+    }
+
+    //the old per pixel coloring of MandelbrotPanel, kept as the baseline
+    private static Color computeColor(int iteration, int maxIterations, int r, int g, int b){
+        double t = (double)iteration / (double) maxIterations;
+
+        int red = (int)(9 * (1 - t)*t*t*t * r);
+        int green = (int)(15 * (1 - t)*(1 - t)*t*t * g);
+        int blue = (int)(8.5*(1 - t)*(1 - t)*(1 - t)*t * b);
+
+        return new Color(red, green, blue);
+    }
+
+    private void measure(String name, Runnable frame){
+        measure(name, WARMUP, RUNS, frame);
+    }
+
+    private void measure(String name, int warmup, int runs, Runnable frame){
+        for(int i = 0; i < warmup; i++){
+            frame.run();
+        }
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for(int i = 0; i < runs; i++){
+            frame.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long bytes = allocatedBytes() - bytesBefore;
+
+        System.out.printf("%-40s %8.2f ms/frame %12d bytes/frame %10.1f MB/s allocated%n",
+                name, seconds * 1000 / runs, bytes / runs, bytes / seconds / 1e6);
+        results.add(String.format(Locale.ROOT, "    {\"group\": \"%s\", \"benchmark\": \"%s\", \"runs\": %d, \"msPerOp\": %.4f, \"bytesPerOp\": %d}",
+                group, name, runs, seconds * 1000 / runs, bytes / runs));
+    }
+
+    //bytes allocated by all live threads, the renders run on the pool threads of the engine and not on the calling thread
+    private long allocatedBytes(){
+        long bytes = 0;
+        for(long allocated : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())){
+            //-1 for threads that ended in the meantime
+            if(allocated > 0){
+                bytes += allocated;
+            }
+        }
+        return bytes;
+    }
+
+    private void writeJson(Path file) throws IOException {
+        String json = String.format(Locale.ROOT, "{%n  \"java\": \"%s\",%n  \"cores\": %d,%n  \"width\": %d,%n  \"height\": %d,%n  \"results\": [%n%s%n  ]%n}%n",
+                System.getProperty("java.version"), Runtime.getRuntime().availableProcessors(), WIDTH, HEIGHT, String.join(",\n", results));
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+}
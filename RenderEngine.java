@@ -0,0 +1,701 @@
+package Mandelbrot.Self;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class RenderEngine {
+
+    public static final int TILE_SIZE = 64;
+    //rectangles that are smaller than this are not subdivided anymore in the Mariani-Silver mode
+    private static final int MIN_SUBDIVISION = 6;
+    private final ExecutorService executor;
+
+    //every render request gets a new generation, tiles of older generations are dropped
+    private final AtomicLong generation = new AtomicLong();
+    private final List<Future<?>> inFlight = new ArrayList<>();
+    //tiles are published under the read lock, starting a new render takes the write lock
+    private final ReadWriteLock publishLock = new ReentrantReadWriteLock();
+
+    //skip interior points with the cardioid/bulb test and periodicity detection, gives the same image
+    private volatile boolean fastPath = true;
+    private volatile RenderMode renderMode = RenderMode.BRUTE_FORCE;
+
+    //SIMD kernel, null when the jdk.incubator.vector module is not available
+    private static final RowKernel VECTOR_KERNEL = loadVectorKernel();
+    private volatile boolean useVectorKernel = VECTOR_KERNEL != null;
+
+    private final RenderMetrics metrics = new RenderMetrics();
+    //samples per axis for pixels on edges, 1 turns supersampling off
+    private volatile int supersampling = 1;
+    //neighbouring counts that differ by more than this fraction, and at least MIN_EDGE_DIFFERENCE, make a pixel an edge
+    private static final double EDGE_CONTRAST = 0.1;
+    private static final int MIN_EDGE_DIFFERENCE = 2;
+    //remote workers that compute the tiles instead of the executor, null to render locally
+    private volatile TileCluster cluster;
+
+    public RenderEngine(){
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    public RenderEngine(ExecutorService executor){
+        this.executor = executor;
+    }
+
+    //split the frame into tiles and compute them in parallel, every finished tile is published to the listener
+    //a new call cancels the render that is still running, so only the newest viewport gets finished
+    public void render(Viewport viewport, RenderListener listener){
+        render(viewport, Collections.singletonList(new Rectangle(0, 0, viewport.width, viewport.height)), listener);
+    }
+
+    //only render the given regions of the frame, the rest of the image is expected to be up to date already
+    public void render(Viewport viewport, List<Rectangle> regions, RenderListener listener){
+        publishLock.writeLock().lock();
+        try {
+            submit(viewport, regions, null, supersampling, listener, generation.incrementAndGet());
+        } finally {
+            publishLock.writeLock().unlock();
+        }
+    }
+
+    //render a whole frame and wait until all tiles are finished, returns the iteration counts row by row
+    //the engine must not be used for other renders at the same time, they would cancel this one
+    public int[] renderFrame(Viewport viewport){
+        return renderFrame(viewport, null);
+    }
+
+    //same as renderFrame, samples gets the sub-samples of the supersampled pixels when it is not null
+    public int[] renderFrame(Viewport viewport, int[][] samples){
+        int[] iterations = new int[viewport.width * viewport.height];
+        CountDownLatch finished = new CountDownLatch(1);
+        render(viewport, new RenderListener() {
+            @Override
+            public void tileFinished(Viewport viewport, Tile tile) {
+                for(int y = 0; y < tile.height; y++){
+                    int offset = (tile.y + y) * viewport.width + tile.x;
+                    System.arraycopy(tile.iterations, y * tile.width, iterations, offset, tile.width);
+                    if(samples != null){
+                        if(tile.samples != null){
+                            System.arraycopy(tile.samples, y * tile.width, samples, offset, tile.width);
+                        }
+                        else{
+                            Arrays.fill(samples, offset, offset + tile.width, null);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void frameFinished(Viewport viewport) {
+                finished.countDown();
+            }
+        });
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+        }
+        return iterations;
+    }
+
+    //stop the running render, after this returns none of its tiles will be published anymore
+    public void cancel(){
+        publishLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            cancelInFlight();
+        } finally {
+            publishLock.writeLock().unlock();
+        }
+    }
+
+    //raise maxIterations of a frame that was rendered completely with previousMaxIterations before,
+    //pixels that escaped keep their count and the others continue from their last z
+    //the arrays are the full frame of the previous render, they must not be changed while the render is running
+    public void deepen(Viewport viewport, int previousMaxIterations, int[] iterations, double[] zReal, double[] zImaginary, RenderListener listener){
+        PreviousFrame previous = new PreviousFrame(previousMaxIterations, iterations, zReal, zImaginary);
+        publishLock.writeLock().lock();
+        try {
+            submit(viewport, Collections.singletonList(new Rectangle(0, 0, viewport.width, viewport.height)), previous, supersampling, listener, generation.incrementAndGet());
+        } finally {
+            publishLock.writeLock().unlock();
+        }
+    }
+
+    private static class PreviousFrame {
+        final int maxIterations;
+        final int[] iterations;
+        final double[] zReal, zImaginary;
+
+        PreviousFrame(int maxIterations, int[] iterations, double[] zReal, double[] zImaginary){
+            this.maxIterations = maxIterations;
+            this.iterations = iterations;
+            this.zReal = zReal;
+            this.zImaginary = zImaginary;
+        }
+    }
+
+    //quick render of a reduced frame that is only shown until the real one is done, it is never supersampled
+    public void renderPreview(Viewport viewport, RenderListener listener){
+        publishLock.writeLock().lock();
+        try {
+            submit(viewport, Collections.singletonList(new Rectangle(0, 0, viewport.width, viewport.height)), null, 1, listener, generation.incrementAndGet());
+        } finally {
+            publishLock.writeLock().unlock();
+        }
+    }
+
+    private void submit(Viewport viewport, List<Rectangle> regions, PreviousFrame previous, int supersampling, RenderListener listener, long renderGeneration){
+        cancelInFlight();
+
+        List<Tile> tiles = split(regions);
+        RenderMode renderMode = this.renderMode;
+        //deep zooms need a more precise kernel, it is shared by all tiles of this render so the perturbation reference orbit is only computed once
+        PixelKernel pixelKernel = PixelKernel.of(viewport, fastPath);
+        AtomicInteger remaining = new AtomicInteger(tiles.size());
+        RenderMetrics.Accumulator accumulator = new RenderMetrics.Accumulator(tiles.size());
+        //deepening needs the previous frame, which only exists here, so it always runs locally
+        TileCluster cluster = this.cluster;
+        boolean remote = cluster != null && previous == null && cluster.getConnectedWorkers() > 0;
+        for(Tile tile : tiles){
+            Runnable local = () -> {
+                long start = System.nanoTime();
+                boolean finished = previous != null
+                        ? deepenTile(viewport, previous, tile, renderMode, renderGeneration)
+                        : computeTile(viewport, pixelKernel, tile, renderMode, renderGeneration);
+                if(finished && supersampling > 1){
+                    finished = supersampleTile(viewport, pixelKernel, tile, supersampling, renderGeneration);
+                }
+                if(finished){
+                    publish(viewport, tile, System.nanoTime() - start, listener, remaining, accumulator, renderGeneration);
+                }
+            };
+            if(!remote){
+                inFlight.add(executor.submit(local));
+                continue;
+            }
+            long start = System.nanoTime();
+            cluster.submit(viewport, fastPath, renderMode, tile, () -> isCurrent(renderGeneration)).whenComplete((result, error) -> {
+                if(error == null){
+                    publish(viewport, tile, System.nanoTime() - start, listener, remaining, accumulator, renderGeneration);
+                }
+                else if(isCurrent(renderGeneration)){
+                    //no worker could compute the tile, so it is computed here
+                    executor.execute(local);
+                }
+            });
+        }
+    }
+
+    private void publish(Viewport viewport, Tile tile, long nanos, RenderListener listener, AtomicInteger remaining,
+                         RenderMetrics.Accumulator accumulator, long renderGeneration){
+        metrics.tileFinished(viewport, tile, nanos, accumulator);
+        publishLock.readLock().lock();
+        try {
+            //drop the tile if a newer render started in the meantime
+            if(!isCurrent(renderGeneration)){
+                return;
+            }
+            listener.tileFinished(viewport, tile);
+        } finally {
+            publishLock.readLock().unlock();
+        }
+        if(remaining.decrementAndGet() == 0 && isCurrent(renderGeneration)){
+            metrics.frameFinished(viewport, accumulator);
+            listener.frameFinished(viewport);
+        }
+    }
+
+    //compute a single tile on the calling thread with the settings of this engine, used by TileWorker
+    public void renderTile(Viewport viewport, PixelKernel pixelKernel, Tile tile){
+        computeTile(viewport, pixelKernel, tile, renderMode, generation.get());
+    }
+
+    private void cancelInFlight(){
+        for(Future<?> future : inFlight){
+            future.cancel(false);
+        }
+        inFlight.clear();
+    }
+
+    private boolean isCurrent(long renderGeneration){
+        return generation.get() == renderGeneration;
+    }
+
+    private List<Tile> split(List<Rectangle> regions){
+        List<Tile> tiles = new ArrayList<>();
+        for(Rectangle region : regions){
+            for(int y = region.y; y < region.y + region.height; y += TILE_SIZE){
+                for(int x = region.x; x < region.x + region.width; x += TILE_SIZE){
+                    tiles.add(new Tile(x, y, Math.min(TILE_SIZE, region.x + region.width - x), Math.min(TILE_SIZE, region.y + region.height - y)));
+                }
+            }
+        }
+        return tiles;
+    }
+
+    //returns false when the render got cancelled before the tile was finished
+    private boolean computeTile(Viewport viewport, PixelKernel pixelKernel, Tile tile, RenderMode renderMode, long renderGeneration){
+        if(pixelKernel != null){
+            pixelKernel.prepare();
+        }
+        if(renderMode == RenderMode.MARIANI_SILVER){
+            //-1 marks pixels that are not computed yet, filled pixels have no z
+            Arrays.fill(tile.iterations, -1);
+            Arrays.fill(tile.zReal, Tile.UNKNOWN);
+            new Subdivision(viewport, pixelKernel, tile, 0, 0, tile.width - 1, tile.height - 1, renderGeneration).invoke();
+            return isCurrent(renderGeneration);
+        }
+
+        RowKernel rowKernel = pixelKernel == null && useVectorKernel ? VECTOR_KERNEL : null;
+        for(int y = 0; y < tile.height; y++){
+            if(!isCurrent(renderGeneration)){
+                return false;
+            }
+            if(rowKernel != null){
+                rowKernel.iterateRow(viewport, tile, y, fastPath);
+                continue;
+            }
+            for(int x = 0; x < tile.width; x++){
+                escapeTime(viewport, pixelKernel, tile, x, y);
+            }
+        }
+        return true;
+    }
+
+    //pixels whose count differs a lot from one of their neighbours get supersampling x supersampling samples,
+    //all other pixels keep their single sample, so only the edges cost more
+    private boolean supersampleTile(Viewport viewport, PixelKernel pixelKernel, Tile tile, int supersampling, long renderGeneration){
+        int width = tile.width;
+        int height = tile.height;
+        //counts of the tile with a border of one pixel, the border belongs to the neighbouring tiles and is computed again here
+        int haloWidth = width + 2;
+        int[] halo = new int[haloWidth * (height + 2)];
+        for(int y = -1; y <= height; y++){
+            for(int x = -1; x <= width; x++){
+                int iteration;
+                if(x >= 0 && x < width && y >= 0 && y < height){
+                    iteration = tile.iterations[y * width + x];
+                }
+                else{
+                    //outside the frame the nearest pixel of the frame is used, so the frame border is no edge
+                    int frameX = Math.max(0, Math.min(viewport.width - 1, tile.x + x));
+                    int frameY = Math.max(0, Math.min(viewport.height - 1, tile.y + y));
+                    iteration = sample(viewport, pixelKernel, frameX, frameY);
+                }
+                halo[(y + 1) * haloWidth + x + 1] = iteration;
+            }
+        }
+
+        int[][] samples = new int[width * height][];
+        for(int y = 0; y < height; y++){
+            if(!isCurrent(renderGeneration)){
+                return false;
+            }
+            for(int x = 0; x < width; x++){
+                int center = (y + 1) * haloWidth + x + 1;
+                if(!isEdge(halo[center], halo[center - 1], viewport.maxIterations)
+                        && !isEdge(halo[center], halo[center + 1], viewport.maxIterations)
+                        && !isEdge(halo[center], halo[center - haloWidth], viewport.maxIterations)
+                        && !isEdge(halo[center], halo[center + haloWidth], viewport.maxIterations)){
+                    continue;
+                }
+                //regular grid of samples inside the pixel
+                int[] pixelSamples = new int[supersampling * supersampling];
+                for(int sampleY = 0; sampleY < supersampling; sampleY++){
+                    for(int sampleX = 0; sampleX < supersampling; sampleX++){
+                        pixelSamples[sampleY * supersampling + sampleX] = sample(viewport, pixelKernel,
+                                tile.x + x + (sampleX + 0.5) / supersampling - 0.5, tile.y + y + (sampleY + 0.5) / supersampling - 0.5);
+                    }
+                }
+                samples[y * width + x] = pixelSamples;
+            }
+        }
+        tile.samples = samples;
+        return true;
+    }
+
+    //the border between the set and the outside is always an edge, escaped pixels only when their counts differ by more than EDGE_CONTRAST
+    private static boolean isEdge(int iteration, int neighbour, int maxIterations){
+        if((iteration >= maxIterations) != (neighbour >= maxIterations)){
+            return true;
+        }
+        return Math.abs(iteration - neighbour) > Math.max(MIN_EDGE_DIFFERENCE, EDGE_CONTRAST * Math.max(iteration, neighbour));
+    }
+
+    //escape time of a point given in pixel coordinates of the frame, which may lie between pixels
+    private int sample(Viewport viewport, PixelKernel pixelKernel, double x, double y){
+        if(pixelKernel != null){
+            return pixelKernel.iterate(x, y);
+        }
+        double cReal = viewport.real(x);
+        double cImaginary = viewport.imaginary(y);
+        return fastPath
+                ? iterateFast(cReal, cImaginary, viewport.maxIterations)
+                : iterate(cReal, cImaginary, viewport.maxIterations);
+    }
+
+    private boolean deepenTile(Viewport viewport, PreviousFrame previous, Tile tile, RenderMode renderMode, long renderGeneration){
+        //pixels without z have to start from the beginning, which costs more than a fresh render with the vector kernel or Mariani-Silver,
+        //this happens for frames from the cache and for the filled parts of Mariani-Silver frames
+        int capped = 0;
+        int unknown = 0;
+        for(int y = 0; y < tile.height; y++){
+            for(int x = 0; x < tile.width; x++){
+                int frameIndex = (tile.y + y) * viewport.width + tile.x + x;
+                if(previous.iterations[frameIndex] >= previous.maxIterations){
+                    capped++;
+                    if(Double.isNaN(previous.zReal[frameIndex])){
+                        unknown++;
+                    }
+                }
+            }
+        }
+        if(unknown * 2 > capped){
+            return computeTile(viewport, null, tile, renderMode, renderGeneration);
+        }
+
+        RowKernel rowKernel = useVectorKernel ? VECTOR_KERNEL : null;
+        for(int y = 0; y < tile.height; y++){
+            if(!isCurrent(renderGeneration)){
+                return false;
+            }
+            for(int x = 0; x < tile.width; x++){
+                int index = y * tile.width + x;
+                int frameIndex = (tile.y + y) * viewport.width + tile.x + x;
+                int iteration = previous.iterations[frameIndex];
+                double zReal = previous.zReal[frameIndex];
+
+                if(iteration < previous.maxIterations){
+                    //escaped already, the count stays the same
+                    tile.iterations[index] = iteration;
+                    tile.zReal[index] = Tile.UNKNOWN;
+                }
+                else if(zReal == Tile.INTERIOR){
+                    tile.iterations[index] = viewport.maxIterations;
+                    tile.zReal[index] = Tile.INTERIOR;
+                }
+                else if(Double.isNaN(zReal)){
+                    //computed after the row kernel, so it does not take these pixels for ones it should continue
+                    tile.iterations[index] = -1;
+                    tile.zReal[index] = Tile.UNKNOWN;
+                }
+                else if(rowKernel != null){
+                    tile.iterations[index] = iteration;
+                    tile.zReal[index] = zReal;
+                    tile.zImaginary[index] = previous.zImaginary[frameIndex];
+                }
+                else{
+                    tile.iterations[index] = resume(viewport.real(tile.x + x), viewport.imaginary(tile.y + y),
+                            zReal, previous.zImaginary[frameIndex], iteration, viewport.maxIterations, fastPath, tile, index);
+                }
+            }
+            if(rowKernel != null){
+                rowKernel.resumeRow(viewport, tile, y, previous.maxIterations, fastPath);
+            }
+            for(int x = 0; x < tile.width; x++){
+                if(tile.iterations[y * tile.width + x] == -1){
+                    escapeTime(viewport, null, tile, x, y);
+                }
+            }
+        }
+        return true;
+    }
+
+    //the vector kernel is loaded by name, so the engine also runs on a JDK without the incubator module
+    private static RowKernel loadVectorKernel(){
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()){
+            return null;
+        }
+        try {
+            return (RowKernel) Class.forName("Mandelbrot.Self.VectorKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    //computes the pixel (x, y) of the tile and stores its iteration count and last z in the tile
+    private int escapeTime(Viewport viewport, PixelKernel pixelKernel, Tile tile, int x, int y){
+        int index = y * tile.width + x;
+        int iteration;
+        if(pixelKernel != null){
+            iteration = pixelKernel.iterate(tile.x + x, tile.y + y);
+            tile.zReal[index] = Tile.UNKNOWN;
+        }
+        else{
+            double cReal = viewport.real(tile.x + x);
+            double cImaginary = viewport.imaginary(tile.y + y);
+            if(fastPath && isInsideCardioidOrBulb(cReal, cImaginary)){
+                iteration = viewport.maxIterations;
+                tile.zReal[index] = Tile.INTERIOR;
+            }
+            else{
+                iteration = resume(cReal, cImaginary, 0, 0, 0, viewport.maxIterations, fastPath, tile, index);
+            }
+        }
+        tile.iterations[index] = iteration;
+        return iteration;
+    }
+
+    //Mariani-Silver: computes the border of the rectangle (x0, y0) - (x1, y1) inside the tile and fills it
+    //when the whole border has the same iteration count, otherwise the four quarters are computed in parallel
+    private class Subdivision extends RecursiveAction {
+
+        private final Viewport viewport;
+        private final PixelKernel pixelKernel;
+        private final Tile tile;
+        private final int x0, y0, x1, y1;
+        private final long renderGeneration;
+
+        Subdivision(Viewport viewport, PixelKernel pixelKernel, Tile tile, int x0, int y0, int x1, int y1, long renderGeneration){
+            this.viewport = viewport;
+            this.pixelKernel = pixelKernel;
+            this.tile = tile;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.renderGeneration = renderGeneration;
+        }
+
+        @Override
+        protected void compute() {
+            if(!isCurrent(renderGeneration)){
+                return;
+            }
+
+            //small rectangles are just computed completely
+            if(x1 - x0 < MIN_SUBDIVISION || y1 - y0 < MIN_SUBDIVISION){
+                for(int y = y0; y <= y1; y++){
+                    for(int x = x0; x <= x1; x++){
+                        pixel(x, y);
+                    }
+                }
+                return;
+            }
+
+            int first = pixel(x0, y0);
+            boolean uniform = true;
+            for(int x = x0; x <= x1; x++){
+                uniform &= pixel(x, y0) == first;
+                uniform &= pixel(x, y1) == first;
+            }
+            for(int y = y0 + 1; y < y1; y++){
+                uniform &= pixel(x0, y) == first;
+                uniform &= pixel(x1, y) == first;
+            }
+
+            if(uniform){
+                for(int y = y0 + 1; y < y1; y++){
+                    Arrays.fill(tile.iterations, y * tile.width + x0 + 1, y * tile.width + x1, first);
+                }
+                return;
+            }
+
+            //the quarters share their borders, so the pixels computed here get reused
+            int middleX = (x0 + x1) / 2;
+            int middleY = (y0 + y1) / 2;
+            invokeAll(new Subdivision(viewport, pixelKernel, tile, x0, y0, middleX, middleY, renderGeneration),
+                    new Subdivision(viewport, pixelKernel, tile, middleX, y0, x1, middleY, renderGeneration),
+                    new Subdivision(viewport, pixelKernel, tile, x0, middleY, middleX, y1, renderGeneration),
+                    new Subdivision(viewport, pixelKernel, tile, middleX, middleY, x1, y1, renderGeneration));
+        }
+
+        //iteration count of a pixel of the tile, it only gets computed the first time
+        private int pixel(int x, int y){
+            int iteration = tile.iterations[y * tile.width + x];
+            if(iteration < 0){
+                iteration = escapeTime(viewport, pixelKernel, tile, x, y);
+            }
+            return iteration;
+        }
+    }
+
+    //escape time of the point c
+    public static int iterate(double cReal, double cImaginary, int maxIterations){
+        //set values needed for calc
+        double zReal = 0;
+        double zImaginary = 0;
+
+        int iteration = 0;
+        while(iteration < maxIterations){
+            double zReal2 = zReal * zReal;
+            double zImaginary2 = zImaginary * zImaginary;
+
+            //check if numbers are already too high and thus further calc is not needed
+            if(zReal2 + zImaginary2 > 4.0){
+                break;
+            }
+
+            double newZReal = zReal*zReal-zImaginary*zImaginary+cReal;
+            zImaginary = 2*zReal*zImaginary+cImaginary;
+            zReal = newZReal;
+            iteration++;
+        }
+        return iteration;
+    }
+
+    //same result as iterate, but points inside the main cardioid, the period-2 bulb or with a periodic orbit return early
+    public static int iterateFast(double cReal, double cImaginary, int maxIterations){
+        if(isInsideCardioidOrBulb(cReal, cImaginary)){
+            return maxIterations;
+        }
+
+        double zReal = 0;
+        double zImaginary = 0;
+
+        //Brent's cycle detection, z is compared with a saved value that gets replaced after 1, 2, 4, 8... iterations
+        double savedReal = 0;
+        double savedImaginary = 0;
+        int period = 1;
+        int steps = 0;
+
+        int iteration = 0;
+        while(iteration < maxIterations){
+            double zReal2 = zReal * zReal;
+            double zImaginary2 = zImaginary * zImaginary;
+
+            if(zReal2 + zImaginary2 > 4.0){
+                break;
+            }
+
+            double newZReal = zReal*zReal-zImaginary*zImaginary+cReal;
+            zImaginary = 2*zReal*zImaginary+cImaginary;
+            zReal = newZReal;
+            iteration++;
+
+            //the orbit repeats exactly, so it will never escape
+            if(zReal == savedReal && zImaginary == savedImaginary){
+                return maxIterations;
+            }
+            steps++;
+            if(steps == period){
+                savedReal = zReal;
+                savedImaginary = zImaginary;
+                period *= 2;
+                steps = 0;
+            }
+        }
+        return iteration;
+    }
+
+    //same iteration as iterate and iterateFast, but it starts at z after the given number of iterations
+    //when the point does not escape its last z is saved in the tile, or INTERIOR when the periodicity check found a cycle
+    private static int resume(double cReal, double cImaginary, double zReal, double zImaginary, int iteration, int maxIterations,
+                              boolean periodicityCheck, Tile tile, int index){
+        double savedReal = zReal;
+        double savedImaginary = zImaginary;
+        int period = 1;
+        int steps = 0;
+
+        while(iteration < maxIterations){
+            double zReal2 = zReal * zReal;
+            double zImaginary2 = zImaginary * zImaginary;
+
+            if(zReal2 + zImaginary2 > 4.0){
+                return iteration;
+            }
+
+            double newZReal = zReal*zReal-zImaginary*zImaginary+cReal;
+            zImaginary = 2*zReal*zImaginary+cImaginary;
+            zReal = newZReal;
+            iteration++;
+
+            if(periodicityCheck){
+                if(zReal == savedReal && zImaginary == savedImaginary){
+                    tile.zReal[index] = Tile.INTERIOR;
+                    return maxIterations;
+                }
+                steps++;
+                if(steps == period){
+                    savedReal = zReal;
+                    savedImaginary = zImaginary;
+                    period *= 2;
+                    steps = 0;
+                }
+            }
+        }
+        tile.zReal[index] = zReal;
+        tile.zImaginary[index] = zImaginary;
+        return iteration;
+    }
+
+    //analytic test for the two biggest parts of the set, these points never escape
+    public static boolean isInsideCardioidOrBulb(double cReal, double cImaginary){
+        double cImaginary2 = cImaginary * cImaginary;
+
+        //main cardioid
+        double q = (cReal - 0.25) * (cReal - 0.25) + cImaginary2;
+        if(q * (q + (cReal - 0.25)) <= 0.25 * cImaginary2){
+            return true;
+        }
+        //period-2 bulb
+        return (cReal + 1) * (cReal + 1) + cImaginary2 <= 0.0625;
+    }
+
+    public void setFastPath(boolean fastPath){
+        this.fastPath = fastPath;
+    }
+
+    //supersampling x supersampling samples for pixels on edges, 1 for one sample per pixel
+    public void setSupersampling(int supersampling){
+        if(supersampling < 1){
+            throw new IllegalArgumentException("Supersampling has to be at least 1");
+        }
+        this.supersampling = supersampling;
+    }
+
+    public int getSupersampling(){
+        return supersampling;
+    }
+
+    public void setCluster(TileCluster cluster){
+        this.cluster = cluster;
+    }
+
+    public TileCluster getCluster(){
+        return cluster;
+    }
+
+    public RenderMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isFastPath(){
+        return fastPath;
+    }
+
+    public static boolean isVectorKernelAvailable(){
+        return VECTOR_KERNEL != null;
+    }
+
+    //only has an effect when the vector kernel is available
+    public void setVectorKernel(boolean useVectorKernel){
+        this.useVectorKernel = useVectorKernel && VECTOR_KERNEL != null;
+    }
+
+    public boolean isVectorKernel(){
+        return useVectorKernel;
+    }
+
+    public void setRenderMode(RenderMode renderMode){
+        this.renderMode = renderMode;
+    }
+
+    public RenderMode getRenderMode(){
+        return renderMode;
+    }
+}
@@ -0,0 +1,88 @@
+package Mandelbrot.Self;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+//JDK Flight Recorder events of the renderer, the recorder and the player
+//they cost nothing unless a recording is running, e.g. java -XX:StartFlightRecording=filename=render.jfr ...
+public final class RenderEvents {
+
+    private RenderEvents(){
+    }
+
+    @Name("mandelbrot.TileRendered")
+    @Label("Tile Rendered")
+    @Category("Mandelbrot")
+    public static class TileRendered extends Event {
+        @Label("X")
+        int x;
+        @Label("Y")
+        int y;
+        @Label("Width")
+        int width;
+        @Label("Height")
+        int height;
+        @Label("Escape Count Sum")
+        long escapeCountSum;
+        @Label("Compute Time")
+        @Timespan
+        long nanos;
+    }
+
+    @Name("mandelbrot.FrameRendered")
+    @Label("Frame Rendered")
+    @Category("Mandelbrot")
+    public static class FrameRendered extends Event {
+        @Label("Range")
+        double range;
+        @Label("Max Iterations")
+        int maxIterations;
+        @Label("Tiles")
+        int tiles;
+        @Label("Escape Count Sum")
+        long escapeCountSum;
+        @Label("Escape Counts Per Second")
+        double escapeCountsPerSecond;
+        @Label("Escaped Fraction")
+        double escapedFraction;
+        @Label("Frame Time")
+        @Timespan
+        long nanos;
+        @Label("Slowest Tile")
+        @Timespan
+        long slowestTileNanos;
+        @Label("Supersampled Fraction")
+        double supersampledFraction;
+    }
+
+    @Name("mandelbrot.CacheHit")
+    @Label("Viewport Cache Hit")
+    @Category("Mandelbrot")
+    public static class CacheHit extends Event {
+        @Label("Range")
+        double range;
+        @Label("Max Iterations")
+        int maxIterations;
+    }
+
+    //wraps the write of one recorded frame, so the duration of the event is the encode time
+    @Name("mandelbrot.FrameEncoded")
+    @Label("Frame Encoded")
+    @Category("Mandelbrot")
+    public static class FrameEncoded extends Event {
+        @Label("Frame")
+        int frame;
+    }
+
+    //wraps the read of one frame in the player, so the duration of the event is the decode time
+    @Name("mandelbrot.FrameDecoded")
+    @Label("Frame Decoded")
+    @Category("Mandelbrot")
+    public static class FrameDecoded extends Event {
+        @Label("Frame")
+        int frame;
+    }
+}
@@ -0,0 +1,11 @@
+package Mandelbrot.Self;
+
+//gets called from the worker threads of the RenderEngine
+public interface RenderListener {
+
+    //a tile is finished and can be drawn
+    void tileFinished(Viewport viewport, Tile tile);
+
+    //all tiles of the frame are finished
+    void frameFinished(Viewport viewport);
+}
@@ -0,0 +1,177 @@
+package Mandelbrot.Self;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//numbers about the renders of one RenderEngine that can be read at any time, the same values are also sent as JFR events
+public class RenderMetrics {
+
+    //count, total and maximum of a duration, safe to record from many threads
+    public static class Latency {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void record(long nanos){
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getAverageMillis() {
+            long count = this.count.sum();
+            return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+    }
+
+    //immutable summary of one finished frame
+    public static class Frame {
+        public final Viewport viewport;
+        public final long nanos;
+        //sum of the escape counts of all pixels and samples that got computed, pixels that reached maxIterations count with the limit
+        //even when the fast path or the periodicity check stopped them early, so this is not the number of iterations that really ran
+        public final long escapeCountSum;
+        public final long escaped, interior;
+        public final int tiles;
+        public final long slowestTileNanos;
+        //pixels on edges that got more than one sample
+        public final long supersampled;
+
+        Frame(Viewport viewport, long nanos, long escapeCountSum, long escaped, long interior, int tiles, long slowestTileNanos, long supersampled){
+            this.viewport = viewport;
+            this.nanos = nanos;
+            this.escapeCountSum = escapeCountSum;
+            this.escaped = escaped;
+            this.interior = interior;
+            this.tiles = tiles;
+            this.slowestTileNanos = slowestTileNanos;
+            this.supersampled = supersampled;
+        }
+
+        public double getMillis() {
+            return nanos / 1e6;
+        }
+
+        public double getEscapeCountsPerSecond() {
+            return nanos == 0 ? 0 : escapeCountSum * 1e9 / nanos;
+        }
+
+        //fraction of the computed pixels that got more than one sample
+        public double getSupersampledFraction() {
+            long pixels = escaped + interior;
+            return pixels == 0 ? 0 : (double)supersampled / pixels;
+        }
+
+        //fraction of the computed pixels that escaped, the rest reached maxIterations
+        public double getEscapedFraction() {
+            long pixels = escaped + interior;
+            return pixels == 0 ? 0 : (double)escaped / pixels;
+        }
+    }
+
+    //counts of a render that is still running, the tiles add to it from the worker threads
+    static class Accumulator {
+        final long start = System.nanoTime();
+        final LongAdder escapeCountSum = new LongAdder();
+        final LongAdder escaped = new LongAdder();
+        final LongAdder interior = new LongAdder();
+        final AtomicLong slowestTile = new AtomicLong();
+        final LongAdder supersampled = new LongAdder();
+        final int tiles;
+
+        Accumulator(int tiles){
+            this.tiles = tiles;
+        }
+    }
+
+    private final Latency tileLatency = new Latency();
+    private final LongAdder totalEscapeCountSum = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private volatile Frame lastFrame;
+
+    void tileFinished(Viewport viewport, Tile tile, long nanos, Accumulator accumulator){
+        long escapeCountSum = 0;
+        long interior = 0;
+        for(int iteration : tile.iterations){
+            escapeCountSum += iteration;
+            if(iteration >= viewport.maxIterations){
+                interior++;
+            }
+        }
+        if(tile.samples != null){
+            long supersampled = 0;
+            for(int[] samples : tile.samples){
+                if(samples != null){
+                    supersampled++;
+                    for(int sample : samples){
+                        escapeCountSum += sample;
+                    }
+                }
+            }
+            accumulator.supersampled.add(supersampled);
+        }
+        accumulator.escapeCountSum.add(escapeCountSum);
+        accumulator.interior.add(interior);
+        accumulator.escaped.add(tile.iterations.length - interior);
+        accumulator.slowestTile.accumulateAndGet(nanos, Math::max);
+        tileLatency.record(nanos);
+
+        RenderEvents.TileRendered event = new RenderEvents.TileRendered();
+        if(event.shouldCommit()){
+            event.x = tile.x;
+            event.y = tile.y;
+            event.width = tile.width;
+            event.height = tile.height;
+            event.escapeCountSum = escapeCountSum;
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    void frameFinished(Viewport viewport, Accumulator accumulator){
+        Frame frame = new Frame(viewport, System.nanoTime() - accumulator.start, accumulator.escapeCountSum.sum(),
+                accumulator.escaped.sum(), accumulator.interior.sum(), accumulator.tiles, accumulator.slowestTile.get(), accumulator.supersampled.sum());
+        lastFrame = frame;
+        frames.increment();
+        totalEscapeCountSum.add(frame.escapeCountSum);
+
+        RenderEvents.FrameRendered event = new RenderEvents.FrameRendered();
+        if(event.shouldCommit()){
+            event.range = viewport.rangeR;
+            event.maxIterations = viewport.maxIterations;
+            event.tiles = frame.tiles;
+            event.escapeCountSum = frame.escapeCountSum;
+            event.escapeCountsPerSecond = frame.getEscapeCountsPerSecond();
+            event.escapedFraction = frame.getEscapedFraction();
+            event.nanos = frame.nanos;
+            event.slowestTileNanos = frame.slowestTileNanos;
+            event.supersampledFraction = frame.getSupersampledFraction();
+            event.commit();
+        }
+    }
+
+    //last frame that got rendered completely, null before the first one
+    public Frame getLastFrame() {
+        return lastFrame;
+    }
+
+    public Latency getTileLatency() {
+        return tileLatency;
+    }
+
+    public long getFrames() {
+        return frames.sum();
+    }
+
+    public long getTotalEscapeCountSum() {
+        return totalEscapeCountSum.sum();
+    }
+}
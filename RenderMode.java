@@ -0,0 +1,9 @@
+package Mandelbrot.Self;
+
+public enum RenderMode {
+    //iterate every single pixel
+    BRUTE_FORCE,
+    //only iterate the border of a rectangle and fill it when the whole border has the same iteration count
+    //approximate: a filament that reaches into a rectangle without touching its border sampled at pixel centers gets filled over
+    MARIANI_SILVER
+}
@@ -0,0 +1,13 @@
+package Mandelbrot.Self;
+
+//computes the escape times of all pixels of one row of a tile, used for the kernels that work on several pixels at once
+public interface RowKernel {
+
+    //the results have to be the same as RenderEngine.iterate gives for every single pixel,
+    //pixels that don't escape get their last z or INTERIOR in the tile like RenderEngine.escapeTime stores it, so they can be deepened
+    void iterateRow(Viewport viewport, Tile tile, int y, boolean fastPath);
+
+    //continues the pixels of the row that have the count iteration and a last z in the tile up to viewport.maxIterations,
+    //the results have to be the same as RenderEngine.resume gives, the other pixels of the row are not touched
+    void resumeRow(Viewport viewport, Tile tile, int y, int iteration, boolean fastPath);
+}
@@ -0,0 +1,27 @@
+package Mandelbrot.Self;
+
+//rectangular part of a frame, holds the iteration counts of its pixels row by row
+//for pixels that did not escape it also holds the last z, so their iteration can be continued when maxIterations is raised
+public class Tile {
+
+    //z of a pixel that is not known, it has to be computed again from the start
+    public static final double UNKNOWN = Double.NaN;
+    //z of a pixel that is known to never escape
+    public static final double INTERIOR = Double.POSITIVE_INFINITY;
+
+    public final int x, y, width, height;
+    public final int[] iterations;
+    public final double[] zReal, zImaginary;
+    //iteration counts of the sub-samples of pixels on edges, null for pixels with one sample or when nothing got supersampled
+    public int[][] samples;
+
+    public Tile(int x, int y, int width, int height){
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.iterations = new int[width * height];
+        this.zReal = new double[width * height];
+        this.zImaginary = new double[width * height];
+    }
+}
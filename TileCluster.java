@@ -0,0 +1,386 @@
+package Mandelbrot.Self;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+//sends tiles to TileWorker processes and collects the results, the RenderEngine uses it instead of its own threads when it is set
+//all workers take their tiles from one shared queue, so fast workers simply take more of them, and a worker without work
+//takes over tiles that another worker has held for too long, whichever result comes first is used
+//tiles of a worker whose connection breaks go back to the queue, the worker is connected again after a pause
+//tiles fail when no worker is connected anymore or they wait too long, the engine then computes them itself
+public class TileCluster implements Closeable {
+
+    //a worker gets twice as many tiles as it has threads, so it has the next ones while the results travel back
+    private static final int TILES_PER_THREAD = 2;
+    //a tile that is not back after this long may be computed by an idle worker as well
+    private static final long STEAL_AFTER_MILLIS = 2000;
+    private static final long RECONNECT_MILLIS = 1000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    //a tile fails after it was lost this many times, the engine then computes it itself
+    private static final int MAX_ATTEMPTS = 4;
+    //a queued tile that no worker took after this long fails, as does a sent one that is not answered
+    private static final long QUEUE_TIMEOUT_MILLIS = 10_000;
+    private static final long ANSWER_TIMEOUT_MILLIS = 60_000;
+    private static final long WATCH_MILLIS = 200;
+
+    private static class Job {
+        final Viewport viewport;
+        final boolean fastPath;
+        final RenderMode renderMode;
+        final Tile tile;
+        final BooleanSupplier current;
+        final CompletableFuture<Tile> result = new CompletableFuture<>();
+        //the first response fills the tile, later ones from stolen copies are ignored
+        //a failed job is claimed as well, so a late answer doesn't change a tile the engine computes itself
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final AtomicInteger attempts = new AtomicInteger();
+        final AtomicBoolean stolen = new AtomicBoolean();
+        volatile long sentAt;
+        volatile long queuedAt = System.currentTimeMillis();
+
+        Job(Viewport viewport, boolean fastPath, RenderMode renderMode, Tile tile, BooleanSupplier current){
+            this.viewport = viewport;
+            this.fastPath = fastPath;
+            this.renderMode = renderMode;
+            this.tile = tile;
+            this.current = current;
+        }
+    }
+
+    private final BlockingDeque<Job> queue = new LinkedBlockingDeque<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    public TileCluster(List<InetSocketAddress> workers){
+        for(InetSocketAddress address : workers){
+            Connection connection = new Connection(address);
+            connections.add(connection);
+        }
+        for(Connection connection : connections){
+            Thread thread = new Thread(connection, "Tile cluster " + connection.address);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Thread watchdog = new Thread(this::watch, "Tile cluster watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    //host:port,host:port
+    public static TileCluster connect(String workers){
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for(String worker : workers.split(",")){
+            String[] parts = worker.trim().split(":");
+            int port = parts.length > 1 ? Integer.parseInt(parts[1]) : TileWorker.DEFAULT_PORT;
+            addresses.add(new InetSocketAddress(parts[0], port));
+        }
+        return new TileCluster(addresses);
+    }
+
+    //start the given number of TileWorker processes on this machine, they are stopped again by close
+    public static TileCluster local(int workers, int threadsPerWorker) throws IOException {
+        List<Process> processes = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            for(int i = 0; i < workers; i++){
+                Process process = startWorker(threadsPerWorker);
+                processes.add(process);
+                addresses.add(new InetSocketAddress("localhost", readPort(process)));
+            }
+        } catch (IOException e) {
+            processes.forEach(Process::destroy);
+            throw e;
+        }
+        TileCluster cluster = new TileCluster(addresses);
+        cluster.processes.addAll(processes);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> cluster.processes.forEach(Process::destroy)));
+        return cluster;
+    }
+
+    private static Process startWorker(int threads) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+            command.add("--add-modules");
+            command.add("jdk.incubator.vector");
+        }
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), TileWorker.class.getName(),
+                "--port", "0", "--threads", String.valueOf(threads)));
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    //the worker prints its port when it is ready, everything it prints after that is thrown away
+    private static int readPort(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        String line = reader.readLine();
+        if(line == null){
+            throw new IOException("Tile worker stopped before it was ready");
+        }
+        Thread drain = new Thread(() -> {
+            try {
+                while(reader.readLine() != null){
+                }
+            } catch (IOException ignored) {
+            }
+        }, "Tile worker output");
+        drain.setDaemon(true);
+        drain.start();
+        return Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+    }
+
+    //queue a tile, the future completes with the filled tile or fails when no worker could compute it
+    //tiles that are not current anymore when a worker would take them are cancelled
+    public CompletableFuture<Tile> submit(Viewport viewport, boolean fastPath, RenderMode renderMode, Tile tile, BooleanSupplier current){
+        Job job = new Job(viewport, fastPath, renderMode, tile, current);
+        if(closed){
+            fail(job, "Tile cluster is closed");
+        }
+        else{
+            queue.add(job);
+        }
+        return job.result;
+    }
+
+    //number of workers that are connected right now
+    public int getConnectedWorkers(){
+        int connected = 0;
+        for(Connection connection : connections){
+            if(connection.connected){
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    @Override
+    public void close(){
+        closed = true;
+        for(Connection connection : connections){
+            connection.disconnect();
+        }
+        Job job;
+        while((job = queue.poll()) != null){
+            fail(job, "Tile cluster is closed");
+        }
+        processes.forEach(Process::destroy);
+    }
+
+    private static void fail(Job job, String message){
+        if(job.claimed.compareAndSet(false, true)){
+            job.result.completeExceptionally(new IOException(message));
+        }
+    }
+
+    //without it the queued tiles of a frame would wait forever once the last worker is gone
+    private void watch(){
+        while(!closed){
+            try {
+                Thread.sleep(WATCH_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            boolean noWorker = getConnectedWorkers() == 0;
+            for(Job job : queue){
+                if((noWorker || now - job.queuedAt > QUEUE_TIMEOUT_MILLIS) && queue.remove(job)){
+                    fail(job, noWorker ? "No tile worker connected" : "No tile worker took the tile in time");
+                }
+            }
+            //the answer may still come, it is ignored because the job is claimed
+            for(Connection connection : connections){
+                for(Job job : connection.running.values()){
+                    if(now - job.sentAt > ANSWER_TIMEOUT_MILLIS){
+                        fail(job, "Tile worker " + connection.address + " did not answer in time");
+                    }
+                }
+            }
+        }
+    }
+
+    //next job for an idle worker, a queued one if there is any, otherwise a copy of a tile another worker holds for too long
+    private Job take(Connection taker) throws InterruptedException {
+        while(!closed){
+            Job job = queue.poll(100, TimeUnit.MILLISECONDS);
+            if(job != null){
+                if(job.result.isDone()){
+                    continue;
+                }
+                if(!job.current.getAsBoolean()){
+                    job.result.cancel(false);
+                    continue;
+                }
+                return job;
+            }
+            long now = System.currentTimeMillis();
+            for(Connection connection : connections){
+                if(connection == taker){
+                    continue;
+                }
+                for(Job running : connection.running.values()){
+                    if(!running.result.isDone() && now - running.sentAt > STEAL_AFTER_MILLIS
+                            && running.current.getAsBoolean() && running.stolen.compareAndSet(false, true)){
+                        return running;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private class Connection implements Runnable {
+        final InetSocketAddress address;
+        //tiles that are sent to this worker and not answered yet, by request id
+        final Map<Integer, Job> running = new ConcurrentHashMap<>();
+        volatile boolean connected = false;
+        volatile Socket socket;
+        boolean reported = false;
+
+        Connection(InetSocketAddress address){
+            this.address = address;
+        }
+
+        @Override
+        public void run() {
+            while(!closed){
+                try {
+                    connectAndSend();
+                } catch (IOException e) {
+                    //only the first failure is reported, not every attempt to get the worker back
+                    if(!closed && !reported){
+                        System.err.println("Tile worker " + address + ": " + e.getMessage());
+                        reported = true;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    disconnect();
+                }
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void connectAndSend() throws IOException, InterruptedException {
+            Socket socket = new Socket();
+            this.socket = socket;
+            socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            int threads = input.readInt();
+            Semaphore slots = new Semaphore(threads * TILES_PER_THREAD);
+            connected = true;
+            reported = false;
+
+            Thread reader = new Thread(() -> receive(input, slots), "Tile cluster reader " + address);
+            reader.setDaemon(true);
+            reader.start();
+
+            while(!closed && !socket.isClosed()){
+                if(!slots.tryAcquire(100, TimeUnit.MILLISECONDS)){
+                    continue;
+                }
+                Job job = take(this);
+                if(job == null){
+                    return;
+                }
+                int id = nextId.incrementAndGet();
+                job.sentAt = System.currentTimeMillis();
+                running.put(id, job);
+                send(output, id, job);
+            }
+        }
+
+        private void send(DataOutputStream output, int id, Job job) throws IOException {
+            Viewport viewport = job.viewport;
+            output.writeInt(id);
+            output.writeUTF(viewport.centerR.toString());
+            output.writeUTF(viewport.centerI.toString());
+            output.writeDouble(viewport.rangeR);
+            output.writeDouble(viewport.rangeI);
+            output.writeInt(viewport.maxIterations);
+            output.writeInt(viewport.width);
+            output.writeInt(viewport.height);
+            output.writeBoolean(job.fastPath);
+            output.writeByte(job.renderMode.ordinal());
+            output.writeInt(job.tile.x);
+            output.writeInt(job.tile.y);
+            output.writeInt(job.tile.width);
+            output.writeInt(job.tile.height);
+            output.flush();
+        }
+
+        private void receive(DataInputStream input, Semaphore slots){
+            try {
+                while(true){
+                    Job job = running.remove(input.readInt());
+                    if(job == null){
+                        throw new IOException("Unknown tile answered");
+                    }
+                    int[] iterations = new int[job.tile.iterations.length];
+                    for(int i = 0; i < iterations.length; i++){
+                        iterations[i] = input.readInt();
+                    }
+                    slots.release();
+                    if(job.claimed.compareAndSet(false, true)){
+                        System.arraycopy(iterations, 0, job.tile.iterations, 0, iterations.length);
+                        //only the iteration counts travel, so deepening computes these pixels from the start
+                        Arrays.fill(job.tile.zReal, Tile.UNKNOWN);
+                        job.result.complete(job.tile);
+                    }
+                }
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+
+        //close the socket and give the unanswered tiles to the other workers
+        synchronized void disconnect(){
+            connected = false;
+            Socket socket = this.socket;
+            if(socket != null){
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+            for(Integer id : new ArrayList<>(running.keySet())){
+                Job job = running.remove(id);
+                if(job == null || job.result.isDone()){
+                    continue;
+                }
+                if(closed){
+                    fail(job, "Tile cluster is closed");
+                }
+                else if(job.attempts.incrementAndGet() >= MAX_ATTEMPTS){
+                    fail(job, "Tile was lost " + MAX_ATTEMPTS + " times");
+                }
+                else{
+                    job.stolen.set(false);
+                    job.queuedAt = System.currentTimeMillis();
+                    queue.addFirst(job);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package Mandelbrot.Self;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+//headless HTTP server that renders XYZ map tiles with the same engine as the window
+//zoom level 0 is one tile that covers a square of side 4 around -0.75 + 0i, every level splits a tile into 2x2 tiles
+//
+//GET /tiles/<zoom>/<x>/<y>.png?iterations=100&palette=200,200,200   colored tile
+//GET /tiles/<zoom>/<x>/<y>.raw?iterations=100                        iteration counts as big-endian ints, row by row
+//GET /metrics                                                         counters and latencies as plain text
+//
+//java Mandelbrot.Self.TileServer [--port 8080] [--threads 8] [--tile-size 256] [--cache-mb 64] [--request-threads 64]
+public class TileServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final double WORLD_RANGE = 4;
+    private static final BigDecimal WORLD_CENTER_R = new BigDecimal("-0.75");
+    private static final BigDecimal WORLD_CENTER_I = BigDecimal.ZERO;
+    //deeper levels have pixels that even the perturbation kernel can't resolve reliably
+    private static final int MAX_ZOOM = 200;
+    private static final int MAX_ITERATIONS = 1_000_000;
+
+    //one tile with everything that changes its bytes, identical keys share one render
+    private static class Key {
+        final int zoom, x, y;
+        final int maxIterations;
+        final int red, green, blue;
+        final boolean raw;
+
+        Key(int zoom, int x, int y, int maxIterations, int red, int green, int blue, boolean raw){
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+            this.maxIterations = maxIterations;
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+            this.raw = raw;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this == o){
+                return true;
+            }
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key key = (Key) o;
+            return zoom == key.zoom && x == key.x && y == key.y && maxIterations == key.maxIterations
+                    && red == key.red && green == key.green && blue == key.blue && raw == key.raw;
+        }
+
+        @Override
+        public int hashCode(){
+            return Objects.hash(zoom, x, y, maxIterations, red, green, blue, raw);
+        }
+    }
+
+    //encoded tiles, the least recently used ones are removed when the byte budget is used up
+    private static class TileCache {
+        private final long maxBytes;
+        private long bytes = 0;
+        //access order, so the first entry is always the least recently used one
+        private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        TileCache(long maxBytes){
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized byte[] get(Key key){
+            return entries.get(key);
+        }
+
+        synchronized void put(Key key, byte[] body){
+            if(body.length > maxBytes){
+                return;
+            }
+            byte[] old = entries.put(key, body);
+            if(old != null){
+                bytes -= old.length;
+            }
+            bytes += body.length;
+
+            Iterator<byte[]> leastRecentlyUsed = entries.values().iterator();
+            while(bytes > maxBytes){
+                bytes -= leastRecentlyUsed.next().length;
+                leastRecentlyUsed.remove();
+            }
+        }
+
+        synchronized int size(){
+            return entries.size();
+        }
+
+        synchronized long bytes(){
+            return bytes;
+        }
+    }
+
+    private final int tileSize;
+    private final RenderEngine renderEngine;
+    //tiles are computed here, request threads only wait for them, so virtual threads never pin their carriers with a long render
+    private final ExecutorService renderExecutor;
+    private final TileCache cache;
+    private final ConcurrentHashMap<Key, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    //requests that waited for a render another request had already started
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final RenderMetrics.Latency requestLatency = new RenderMetrics.Latency();
+    private final RenderMetrics.Latency renderLatency = new RenderMetrics.Latency();
+
+    public TileServer(int threads, int tileSize, long cacheBytes){
+        this.tileSize = tileSize;
+        renderExecutor = new ForkJoinPool(threads);
+        renderEngine = new RenderEngine(renderExecutor);
+        cache = new TileCache(cacheBytes);
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int tileSize = 256;
+        long cacheMegabytes = 64;
+        int requestThreads = 64;
+        try {
+            for(int i = 0; i < args.length; i++){
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--tile-size":
+                        tileSize = Integer.parseInt(args[++i]);
+                        break;
+                    case "--cache-mb":
+                        cacheMegabytes = Long.parseLong(args[++i]);
+                        break;
+                    case "--request-threads":
+                        requestThreads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if(threads < 1 || tileSize < 1 || cacheMegabytes < 0 || requestThreads < 1){
+                throw new IllegalArgumentException("--threads, --tile-size and --request-threads have to be at least 1");
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Usage: TileServer [--port <port>] [--threads <threads>] [--tile-size <pixels>] [--cache-mb <megabytes>] [--request-threads <threads>]");
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        TileServer tileServer = new TileServer(threads, tileSize, cacheMegabytes * 1024 * 1024);
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+            server.createContext("/tiles/", tileServer::handleTile);
+            server.createContext("/metrics", tileServer::handleMetrics);
+            ExecutorService requestExecutor = virtualThreadExecutor();
+            String requestThreading = "one virtual thread per request";
+            if(requestExecutor == null){
+                requestExecutor = Executors.newFixedThreadPool(requestThreads);
+                requestThreading = requestThreads + " request threads";
+            }
+            server.setExecutor(requestExecutor);
+            server.start();
+            System.out.println("TileServer listening on " + server.getAddress().getPort() + ", " + tileSize + "px tiles, " + requestThreading);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    //one virtual thread per request on JDKs that have them, null otherwise
+    private static ExecutorService virtualThreadExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private void handleTile(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        requests.increment();
+        try (exchange) {
+            if(!"GET".equals(exchange.getRequestMethod())){
+                send(exchange, 405, "text/plain", "Only GET is supported\n".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            Key key;
+            try {
+                key = parse(exchange.getRequestURI());
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "text/plain", (e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            byte[] body;
+            try {
+                body = tile(key);
+            } catch (RuntimeException e) {
+                errors.increment();
+                e.printStackTrace();
+                send(exchange, 500, "text/plain", "Rendering failed\n".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            exchange.getResponseHeaders().set("Cache-Control", "public, max-age=86400");
+            if(key.raw){
+                exchange.getResponseHeaders().set("X-Tile-Size", String.valueOf(tileSize));
+            }
+            send(exchange, 200, key.raw ? "application/octet-stream" : "image/png", body);
+        } finally {
+            requestLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            send(exchange, 200, "text/plain", metrics().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    //encoded tile from the cache, from a render that is already running for the same key or from a new render
+    byte[] tile(Key key){
+        byte[] body = cache.get(key);
+        if(body != null){
+            cacheHits.increment();
+            return body;
+        }
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, future);
+        if(running != null){
+            coalesced.increment();
+            return running.join();
+        }
+        try {
+            //the render that just finished may have been put into the cache between the lookup and putIfAbsent
+            body = cache.get(key);
+            if(body == null){
+                body = renderExecutor.submit(() -> render(key)).get();
+                cache.put(key, body);
+            }
+            future.complete(body);
+            return body;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            future.completeExceptionally(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private byte[] render(Key key) throws IOException {
+        long start = System.nanoTime();
+        Viewport viewport = viewport(key);
+        Tile tile = new Tile(0, 0, tileSize, tileSize);
+        renderEngine.renderTile(viewport, PixelKernel.of(viewport, renderEngine.isFastPath()), tile);
+        rendered.increment();
+        renderLatency.record(System.nanoTime() - start);
+
+        if(key.raw){
+            ByteBuffer buffer = ByteBuffer.allocate(tile.iterations.length * Integer.BYTES);
+            buffer.asIntBuffer().put(tile.iterations);
+            return buffer.array();
+        }
+        BufferedImage image = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        new Palette(key.red, key.green, key.blue, key.maxIterations).apply(tile.iterations, pixels, 0, pixels.length);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    //side of a tile on level zoom is WORLD_RANGE / 2^zoom, both are exact in binary, so the center of a tile is exact as well
+    private Viewport viewport(Key key){
+        double range = Math.scalb(WORLD_RANGE, -key.zoom);
+        BigDecimal side = new BigDecimal(range);
+        BigDecimal half = new BigDecimal(WORLD_RANGE / 2);
+        BigDecimal centerR = WORLD_CENTER_R.subtract(half).add(side.multiply(new BigDecimal(key.x * 2L + 1)).divide(BigDecimal.valueOf(2)));
+        BigDecimal centerI = WORLD_CENTER_I.subtract(half).add(side.multiply(new BigDecimal(key.y * 2L + 1)).divide(BigDecimal.valueOf(2)));
+        return new Viewport(centerR, centerI, range, range, key.maxIterations, tileSize, tileSize);
+    }
+
+    //tile key from /tiles/<zoom>/<x>/<y>.<png|raw>?iterations=<n>&palette=<r>,<g>,<b>
+    private static Key parse(URI uri){
+        String[] parts = uri.getPath().split("/");
+        if(parts.length != 5 || !parts[1].equals("tiles")){
+            throw new IllegalArgumentException("Expected /tiles/<zoom>/<x>/<y>.png or .raw");
+        }
+        String last = parts[4];
+        int dot = last.lastIndexOf('.');
+        String format = dot < 0 ? "" : last.substring(dot + 1);
+        if(!format.equals("png") && !format.equals("raw")){
+            throw new IllegalArgumentException("Format has to be png or raw");
+        }
+
+        Map<String, String> query = new HashMap<>();
+        if(uri.getRawQuery() != null){
+            for(String parameter : uri.getRawQuery().split("&")){
+                int equals = parameter.indexOf('=');
+                if(equals > 0){
+                    query.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+                }
+            }
+        }
+
+        try {
+            int zoom = Integer.parseInt(parts[2]);
+            int x = Integer.parseInt(parts[3]);
+            int y = Integer.parseInt(last.substring(0, dot));
+            int maxIterations = Integer.parseInt(query.getOrDefault("iterations", "100"));
+            String[] palette = query.getOrDefault("palette", "200,200,200").split(",");
+            if(palette.length != 3){
+                throw new IllegalArgumentException("palette has to be <red>,<green>,<blue>");
+            }
+            if(zoom < 0 || zoom > MAX_ZOOM){
+                throw new IllegalArgumentException("zoom has to be between 0 and " + MAX_ZOOM);
+            }
+            //x and y are ints, so on deep levels only the tiles near the corner of the world can be addressed
+            long tiles = zoom >= 62 ? Long.MAX_VALUE : 1L << zoom;
+            if(x < 0 || y < 0 || x >= tiles || y >= tiles){
+                throw new IllegalArgumentException("x and y have to be between 0 and " + (tiles - 1));
+            }
+            if(maxIterations < 1 || maxIterations > MAX_ITERATIONS){
+                throw new IllegalArgumentException("iterations has to be between 1 and " + MAX_ITERATIONS);
+            }
+            int red = Integer.parseInt(palette[0]);
+            int green = Integer.parseInt(palette[1]);
+            int blue = Integer.parseInt(palette[2]);
+            //larger values overflow into the neighbouring channel of the ARGB color
+            if(red < 0 || red > 255 || green < 0 || green > 255 || blue < 0 || blue > 255){
+                throw new IllegalArgumentException("palette values have to be between 0 and 255");
+            }
+            return new Key(zoom, x, y, maxIterations, red, green, blue, format.equals("raw"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Please insert whole numbers for zoom, x, y, iterations and palette");
+        }
+    }
+
+    //one "name value" pair per line, throughput is averaged since the start of the server
+    String metrics(){
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return "requests " + requests.sum() + "\n"
+                + "requests_per_second " + String.format(Locale.ROOT, "%.1f", requests.sum() / seconds) + "\n"
+                + "cache_hits " + cacheHits.sum() + "\n"
+                + "coalesced " + coalesced.sum() + "\n"
+                + "rendered " + rendered.sum() + "\n"
+                + "errors " + errors.sum() + "\n"
+                + "in_flight " + inFlight.size() + "\n"
+                + "cached_tiles " + cache.size() + "\n"
+                + "cached_bytes " + cache.bytes() + "\n"
+                + "request_latency_avg_ms " + String.format(Locale.ROOT, "%.2f", requestLatency.getAverageMillis()) + "\n"
+                + "request_latency_max_ms " + String.format(Locale.ROOT, "%.2f", requestLatency.getMaxMillis()) + "\n"
+                + "render_latency_avg_ms " + String.format(Locale.ROOT, "%.2f", renderLatency.getAverageMillis()) + "\n"
+                + "render_latency_max_ms " + String.format(Locale.ROOT, "%.2f", renderLatency.getMaxMillis()) + "\n";
+    }
+}
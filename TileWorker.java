@@ -0,0 +1,145 @@
+package Mandelbrot.Self;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+//process that computes tiles for a TileCluster on another machine or in another JVM
+//every connection gets the number of threads first, then the worker answers tile requests in the order they are finished
+//
+//java Mandelbrot.Self.TileWorker [--port 7700] [--threads 8]
+public class TileWorker {
+
+    public static final int DEFAULT_PORT = 7700;
+
+    private final ExecutorService executor;
+    //one engine per combination of fast path and render mode, their settings never change
+    //tiles of different frames and connections run at the same time, so they must not switch the settings of a shared engine
+    private final RenderEngine[] renderEngines = new RenderEngine[RenderMode.values().length * 2];
+    private final int threads;
+
+    //the tiles of one frame share the kernel, so the reference orbit of the perturbation kernel is only computed once
+    private Viewport lastViewport;
+    private boolean lastFastPath;
+    private PixelKernel lastKernel;
+
+    public TileWorker(int threads){
+        this.threads = threads;
+        executor = new ForkJoinPool(threads);
+        for(RenderMode renderMode : RenderMode.values()){
+            for(int fastPath = 0; fastPath < 2; fastPath++){
+                RenderEngine renderEngine = new RenderEngine(executor);
+                renderEngine.setRenderMode(renderMode);
+                renderEngine.setFastPath(fastPath == 1);
+                renderEngines[renderMode.ordinal() * 2 + fastPath] = renderEngine;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for(int i = 0; i < args.length; i++){
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Usage: TileWorker [--port <port>] [--threads <threads>]");
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        TileWorker worker = new TileWorker(threads);
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            //TileCluster.local reads the port from this line, port 0 picks a free one
+            System.out.println("TileWorker listening on " + serverSocket.getLocalPort());
+            System.out.flush();
+            while(true){
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> worker.serve(socket), "Tile worker " + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    //reads requests until the coordinator closes the connection, the tiles are computed on the pool and written back when done
+    private void serve(Socket socket){
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            output.writeInt(threads);
+            output.flush();
+
+            while(true){
+                int id;
+                try {
+                    id = input.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                Viewport viewport = new Viewport(new BigDecimal(input.readUTF()), new BigDecimal(input.readUTF()),
+                        input.readDouble(), input.readDouble(), input.readInt(), input.readInt(), input.readInt());
+                boolean fastPath = input.readBoolean();
+                RenderMode renderMode = RenderMode.values()[input.readByte()];
+                Tile tile = new Tile(input.readInt(), input.readInt(), input.readInt(), input.readInt());
+
+                PixelKernel pixelKernel = pixelKernel(viewport, fastPath);
+                RenderEngine renderEngine = renderEngines[renderMode.ordinal() * 2 + (fastPath ? 1 : 0)];
+                executor.execute(() -> {
+                    renderEngine.renderTile(viewport, pixelKernel, tile);
+                    try {
+                        synchronized (output){
+                            output.writeInt(id);
+                            for(int iteration : tile.iterations){
+                                output.writeInt(iteration);
+                            }
+                            output.flush();
+                        }
+                    } catch (IOException e) {
+                        //the coordinator is gone, the reader notices it too
+                        try {
+                            socket.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                });
+            }
+        } catch (IOException e) {
+            System.err.println("Connection lost: " + e.getMessage());
+        }
+    }
+
+    private synchronized PixelKernel pixelKernel(Viewport viewport, boolean fastPath){
+        if(!PixelKernel.isNeeded(viewport)){
+            return null;
+        }
+        //the double-double kernel does its own periodicity check, so the fast path setting is part of the kernel
+        if(lastViewport == null || !lastViewport.sameArea(viewport) || lastViewport.maxIterations != viewport.maxIterations
+                || lastFastPath != fastPath){
+            lastViewport = viewport;
+            lastFastPath = fastPath;
+            lastKernel = PixelKernel.of(viewport, fastPath);
+        }
+        return lastKernel;
+    }
+}
@@ -0,0 +1,190 @@
+package Mandelbrot.Self;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//escape time kernel that iterates a whole vector of pixels at once with the Vector API
+//only gets loaded by the RenderEngine when the jdk.incubator.vector module is present
+public class VectorKernel implements RowKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int CYCLE_CHECK_INTERVAL = 16;
+
+    @Override
+    public void iterateRow(Viewport viewport, Tile tile, int y, boolean fastPath) {
+        Lanes lanes = new Lanes(viewport, tile, y, 0, fastPath);
+        int offset = y * tile.width;
+        for(int x = 0; x < tile.width; x++){
+            //c is computed exactly like the scalar kernel does it
+            if(fastPath && RenderEngine.isInsideCardioidOrBulb(viewport.real(tile.x + x), lanes.cImaginary)){
+                tile.iterations[offset + x] = viewport.maxIterations;
+                tile.zReal[offset + x] = Tile.INTERIOR;
+                continue;
+            }
+            tile.zReal[offset + x] = 0;
+            tile.zImaginary[offset + x] = 0;
+            lanes.add(x);
+        }
+        lanes.finish();
+    }
+
+    @Override
+    public void resumeRow(Viewport viewport, Tile tile, int y, int iteration, boolean fastPath) {
+        Lanes lanes = new Lanes(viewport, tile, y, iteration, fastPath);
+        int offset = y * tile.width;
+        for(int x = 0; x < tile.width; x++){
+            double zReal = tile.zReal[offset + x];
+            if(tile.iterations[offset + x] == iteration && !Double.isNaN(zReal) && zReal != Tile.INTERIOR){
+                lanes.add(x);
+            }
+        }
+        lanes.finish();
+    }
+
+    //collects pixels of one row that start at the same iteration, every full vector of them gets iterated together
+    private class Lanes {
+
+        private final Viewport viewport;
+        private final Tile tile;
+        private final int offset;
+        private final double cImaginary;
+        private final int iteration;
+        private final boolean periodicityCheck;
+        private final int[] columns = new int[SPECIES.length()];
+        private int pixels;
+
+        private final double[] cReal = new double[SPECIES.length()];
+        private final double[] counts = new double[SPECIES.length()];
+        private final double[] zReal = new double[SPECIES.length()];
+        private final double[] zImaginary = new double[SPECIES.length()];
+        private final boolean[] done = new boolean[SPECIES.length()];
+
+        Lanes(Viewport viewport, Tile tile, int y, int iteration, boolean periodicityCheck){
+            this.viewport = viewport;
+            this.tile = tile;
+            this.offset = y * tile.width;
+            this.cImaginary = viewport.imaginary(tile.y + y);
+            this.iteration = iteration;
+            this.periodicityCheck = periodicityCheck;
+        }
+
+        //the pixel starts at the z that is in the tile
+        void add(int x){
+            columns[pixels++] = x;
+            if(pixels == columns.length){
+                finish();
+            }
+        }
+
+        //iterates the collected pixels and stores their counts and last z in the tile
+        void finish(){
+            if(pixels == 0){
+                return;
+            }
+            //lanes without a pixel are treated as if they already escaped
+            for(int lane = 0; lane < columns.length; lane++){
+                int index = offset + columns[lane];
+                boolean used = lane < pixels;
+                cReal[lane] = used ? viewport.real(tile.x + columns[lane]) : 0;
+                zReal[lane] = used ? tile.zReal[index] : 0;
+                zImaginary[lane] = used ? tile.zImaginary[index] : 0;
+                counts[lane] = iteration;
+                done[lane] = !used;
+            }
+
+            iterate(cReal, cImaginary, iteration, viewport.maxIterations, done, periodicityCheck, counts, zReal, zImaginary);
+
+            for(int lane = 0; lane < pixels; lane++){
+                int index = offset + columns[lane];
+                tile.iterations[index] = (int) counts[lane];
+                //INTERIOR for lanes with a cycle, the last z for the others that did not escape, like RenderEngine.resume stores it
+                tile.zReal[index] = counts[lane] < viewport.maxIterations ? Tile.UNKNOWN : zReal[lane];
+                tile.zImaginary[index] = zImaginary[lane];
+            }
+            pixels = 0;
+        }
+    }
+
+    //continues all lanes from the state in the arrays after the given number of iterations, the arrays get the state at the end
+    //with the periodicity check lanes whose orbit repeats get maxIterations and INTERIOR as z, like in RenderEngine.resume
+    private static void iterate(double[] cReal, double cImaginary, int iteration, int maxIterations, boolean[] done, boolean periodicityCheck,
+                                double[] counts, double[] zReal, double[] zImaginary){
+        if(!periodicityCheck){
+            iterateVector(cReal, cImaginary, maxIterations - iteration, done, counts, zReal, zImaginary);
+            return;
+        }
+
+        //Brent's cycle detection like RenderEngine.iterateFast, but z is only compared between chunks of CYCLE_CHECK_INTERVAL iterations,
+        //a check in the vector loop itself costs most of its speed. z is saved after 1, 2, 4, 8... chunks, so a cycle is still found,
+        //only later than in the scalar kernel, and a cycle found means the point never escapes so the counts stay identical
+        int lanes = SPECIES.length();
+        boolean[] interior = new boolean[lanes];
+        double[] savedReal = zReal.clone();
+        double[] savedImaginary = zImaginary.clone();
+        int period = 1;
+        int steps = 0;
+
+        for(; iteration < maxIterations; iteration += CYCLE_CHECK_INTERVAL){
+            if(iterateVector(cReal, cImaginary, Math.min(CYCLE_CHECK_INTERVAL, maxIterations - iteration), done, counts, zReal, zImaginary)){
+                break;
+            }
+            for(int lane = 0; lane < lanes; lane++){
+                if(!done[lane] && zReal[lane] == savedReal[lane] && zImaginary[lane] == savedImaginary[lane]){
+                    done[lane] = true;
+                    interior[lane] = true;
+                }
+            }
+            steps++;
+            if(steps == period){
+                System.arraycopy(zReal, 0, savedReal, 0, lanes);
+                System.arraycopy(zImaginary, 0, savedImaginary, 0, lanes);
+                period *= 2;
+                steps = 0;
+            }
+        }
+        for(int lane = 0; lane < lanes; lane++){
+            if(interior[lane]){
+                counts[lane] = maxIterations;
+                zReal[lane] = Tile.INTERIOR;
+            }
+        }
+    }
+
+    //continues all lanes that are not done for the given number of iterations, the arrays hold the state before and after
+    //returns true when all lanes are done
+    private static boolean iterateVector(double[] cRealValues, double cImaginaryValue, int iterations, boolean[] doneValues,
+                                  double[] countValues, double[] zRealValues, double[] zImaginaryValues){
+        DoubleVector cReal = DoubleVector.fromArray(SPECIES, cRealValues, 0);
+        DoubleVector cImaginary = DoubleVector.broadcast(SPECIES, cImaginaryValue);
+        DoubleVector zReal = DoubleVector.fromArray(SPECIES, zRealValues, 0);
+        DoubleVector zImaginary = DoubleVector.fromArray(SPECIES, zImaginaryValues, 0);
+        DoubleVector counts = DoubleVector.fromArray(SPECIES, countValues, 0);
+        VectorMask<Double> done = VectorMask.fromArray(SPECIES, doneValues, 0);
+
+        for(int iteration = 0; iteration < iterations; iteration++){
+            DoubleVector zReal2 = zReal.mul(zReal);
+            DoubleVector zImaginary2 = zImaginary.mul(zImaginary);
+
+            //escaped lanes stay masked, their z is not touched anymore
+            done = done.or(zReal2.add(zImaginary2).compare(VectorOperators.GT, 4.0));
+            if(done.allTrue()){
+                break;
+            }
+            VectorMask<Double> active = done.not();
+
+            //same operations in the same order as the scalar kernel so the results are identical
+            DoubleVector newZReal = zReal2.sub(zImaginary2).add(cReal);
+            DoubleVector newZImaginary = zReal.mul(2).mul(zImaginary).add(cImaginary);
+            zReal = zReal.blend(newZReal, active);
+            zImaginary = zImaginary.blend(newZImaginary, active);
+            counts = counts.add(1, active);
+        }
+        zReal.intoArray(zRealValues, 0);
+        zImaginary.intoArray(zImaginaryValues, 0);
+        counts.intoArray(countValues, 0);
+        done.intoArray(doneValues, 0);
+        return done.allTrue();
+    }
+}
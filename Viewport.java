@@ -0,0 +1,59 @@
+package Mandelbrot.Self;
+
+import java.math.BigDecimal;
+
+//immutable snapshot of everything that is needed to render one frame
+public class Viewport {
+
+    //the center is kept with arbitrary precision for deep zooms, middleR/middleI are the nearest doubles
+    public final BigDecimal centerR, centerI;
+    public final double middleR, middleI;
+    public final double rangeR, rangeI;
+    public final int maxIterations;
+    public final int width, height;
+
+    public Viewport(double middleR, double middleI, double rangeR, double rangeI, int maxIterations, int width, int height){
+        this(new BigDecimal(middleR), new BigDecimal(middleI), rangeR, rangeI, maxIterations, width, height);
+    }
+
+    public Viewport(BigDecimal centerR, BigDecimal centerI, double rangeR, double rangeI, int maxIterations, int width, int height){
+        this.centerR = centerR;
+        this.centerI = centerI;
+        this.middleR = centerR.doubleValue();
+        this.middleI = centerI.doubleValue();
+        this.rangeR = rangeR;
+        this.rangeI = rangeI;
+        this.maxIterations = maxIterations;
+        this.width = width;
+        this.height = height;
+    }
+
+    //real part of c for the pixel column x, fractions of a pixel are used for supersampling
+    public double real(double x){
+        double cReal = x / (double)width;
+        return cReal * rangeR + middleR - rangeR / 2;
+    }
+
+    //imaginary part of c for the pixel row y
+    public double imaginary(double y){
+        double cImaginary = y / (double)height;
+        return cImaginary * rangeI + middleI - rangeI / 2;
+    }
+
+    //distance of the pixel column x from the center
+    public double deltaReal(double x){
+        return x / (double)width * rangeR - rangeR / 2;
+    }
+
+    //distance of the pixel row y from the center
+    public double deltaImaginary(double y){
+        return y / (double)height * rangeI - rangeI / 2;
+    }
+
+    //true when both viewports cover exactly the same pixels, maxIterations may differ
+    public boolean sameArea(Viewport other){
+        return centerR.equals(other.centerR) && centerI.equals(other.centerI)
+                && rangeR == other.rangeR && rangeI == other.rangeI
+                && width == other.width && height == other.height;
+    }
+}
@@ -0,0 +1,129 @@
+package Mandelbrot.Self;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+//keeps the iteration counts of recently rendered viewports, the least recently used ones are removed when the byte budget is used up
+public class ViewportCache {
+
+    private final long maxBytes;
+    private long bytes = 0;
+    //access order, so the first entry is always the least recently used one
+    private final LinkedHashMap<Key, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ViewportCache(long maxBytes){
+        this.maxBytes = maxBytes;
+    }
+
+    //iteration counts of the viewport row by row or null, the array must not be changed
+    public synchronized int[] get(Viewport viewport){
+        int[] iterations = entries.get(new Key(viewport));
+        if(iterations == null){
+            misses.incrementAndGet();
+        }
+        else{
+            hits.incrementAndGet();
+        }
+        return iterations;
+    }
+
+    public synchronized boolean contains(Viewport viewport){
+        return entries.containsKey(new Key(viewport));
+    }
+
+    //the cache keeps the array, the caller must not change it afterwards
+    public synchronized void put(Viewport viewport, int[] iterations){
+        long size = (long) iterations.length * Integer.BYTES;
+        if(size > maxBytes){
+            return;
+        }
+        int[] old = entries.put(new Key(viewport), iterations);
+        if(old != null){
+            bytes -= (long) old.length * Integer.BYTES;
+        }
+        bytes += size;
+
+        Iterator<int[]> leastRecentlyUsed = entries.values().iterator();
+        while(bytes > maxBytes){
+            bytes -= (long) leastRecentlyUsed.next().length * Integer.BYTES;
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    public synchronized void clear(){
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    //zooming out multiplies the range with 1 / zoomFactor, that doesn't give back exactly the same double,
+    //so the ranges are compared on a logarithmic scale and the center in thousandths of a pixel
+    private static class Key {
+
+        private static final double RANGE_STEPS = 1e9;
+        private static final int PIXEL_FRACTION = 1000;
+
+        private final long rangeR, rangeI;
+        private final BigInteger centerR, centerI;
+        private final int maxIterations;
+        private final int width, height;
+
+        Key(Viewport viewport){
+            rangeR = Math.round(Math.log(viewport.rangeR) * RANGE_STEPS);
+            rangeI = Math.round(Math.log(viewport.rangeI) * RANGE_STEPS);
+            //the unit only depends on the rounded range, so equal keys always use the same unit
+            centerR = units(viewport.centerR, Math.exp(rangeR / RANGE_STEPS) / viewport.width / PIXEL_FRACTION);
+            centerI = units(viewport.centerI, Math.exp(rangeI / RANGE_STEPS) / viewport.height / PIXEL_FRACTION);
+            maxIterations = viewport.maxIterations;
+            width = viewport.width;
+            height = viewport.height;
+        }
+
+        private static BigInteger units(BigDecimal value, double unit){
+            BigDecimal unitDecimal = new BigDecimal(unit);
+            return value.divide(unitDecimal, 0, RoundingMode.HALF_EVEN).toBigInteger();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o){
+                return true;
+            }
+            if(!(o instanceof Key)){
+                return false;
+            }
+            Key key = (Key) o;
+            return rangeR == key.rangeR && rangeI == key.rangeI && maxIterations == key.maxIterations
+                    && width == key.width && height == key.height
+                    && centerR.equals(key.centerR) && centerI.equals(key.centerI);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rangeR, rangeI, centerR, centerI, maxIterations, width, height);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowFocusListener;
+import java.io.IOException;
 
 public class Window extends JFrame{
 
@@ -15,7 +16,13 @@ public class Window extends JFrame{
     private MandelbrotPanel mandelbrotPanel = new MandelbrotPanel(WINDOW_WIDTH, WINDOW_HEIGHT-100);
 
     public Window(){
+        this(null);
+    }
+
+    //tileCluster computes the tiles on other processes, null to render on this machine
+    public Window(TileCluster tileCluster){
         super("Mandelbrot");
+        mandelbrotPanel.setTileCluster(tileCluster);
         this.setSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
         this.setLayout(new BorderLayout());
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -41,8 +48,7 @@ public class Window extends JFrame{
             public void keyTyped(KeyEvent e) {
                 try{
                     mandelbrotPanel.setZoomFactor(Double.parseDouble(zoomFactorTextField.getText()));
-                    mandelbrotPanel.stateChanged = true;
-                    repaint();
+                    mandelbrotPanel.render();
                 }
                 catch (NumberFormatException ne){
                     JOptionPane.showMessageDialog(null, "Please insert real number", "Number error" ,JOptionPane.ERROR_MESSAGE);
@@ -70,8 +76,7 @@ public class Window extends JFrame{
             public void keyTyped(KeyEvent e) {
                try{
                     mandelbrotPanel.setMaxIterations(Integer.parseInt(maxIterationsField.getText()));
-                    mandelbrotPanel.stateChanged = true;
-                    repaint();
+                    mandelbrotPanel.render();
                 }
                 catch (NumberFormatException ne){
                     JOptionPane.showMessageDialog(null, "Please insert real number", "Number error" ,JOptionPane.ERROR_MESSAGE);
@@ -91,6 +96,16 @@ public class Window extends JFrame{
             }
         });
 
+        //the panel changes maxIterations itself in auto mode, the field shows the value it picked
+        JCheckBox autoIterationsCheckBox = new JCheckBox("Auto", mandelbrotPanel.isAutoIterations());
+        autoIterationsCheckBox.addActionListener(e -> {
+            mandelbrotPanel.setAutoIterations(autoIterationsCheckBox.isSelected());
+            maxIterationsField.setEditable(!autoIterationsCheckBox.isSelected());
+            mandelbrotPanel.requestFocusInWindow();
+        });
+        mandelbrotPanel.addPropertyChangeListener("maxIterations", e -> SwingUtilities.invokeLater(() ->
+                maxIterationsField.setText(String.valueOf(e.getNewValue()))));
+
         //stuff to change the color of the mandelbrot
         JPanel controlPanel = new JPanel(new FlowLayout()); //Panel for stuff on the bottom
         sliderFrame = new SliderFrame();
@@ -105,6 +120,50 @@ public class Window extends JFrame{
             mandelbrotPanel.requestFocusInWindow();
         });
 
+        JCheckBox recordToFileCheckBox = new JCheckBox("Single file", false);
+        recordToFileCheckBox.addActionListener(e -> {
+            mandelbrotPanel.setRecordToFile(recordToFileCheckBox.isSelected());
+            mandelbrotPanel.requestFocusInWindow();
+        });
+
+        JCheckBox fastPathCheckBox = new JCheckBox("Fast path", mandelbrotPanel.isFastPath());
+        fastPathCheckBox.addActionListener(e -> {
+            mandelbrotPanel.setFastPath(fastPathCheckBox.isSelected());
+            mandelbrotPanel.requestFocusInWindow();
+        });
+
+        //only pixels on edges get supersampled, 4x4 samples each
+        JCheckBox antialiasingCheckBox = new JCheckBox("Antialiasing", mandelbrotPanel.getSupersampling() > 1);
+        antialiasingCheckBox.addActionListener(e -> {
+            mandelbrotPanel.setSupersampling(antialiasingCheckBox.isSelected() ? 4 : 1);
+            mandelbrotPanel.requestFocusInWindow();
+        });
+
+        JCheckBox animateZoomCheckBox = new JCheckBox("Animate zoom", mandelbrotPanel.isAnimateZoom());
+        animateZoomCheckBox.addActionListener(e -> {
+            mandelbrotPanel.setAnimateZoom(animateZoomCheckBox.isSelected());
+            mandelbrotPanel.requestFocusInWindow();
+        });
+
+        JCheckBox progressiveCheckBox = new JCheckBox("Progressive", mandelbrotPanel.isProgressive());
+        progressiveCheckBox.addActionListener(e -> {
+            mandelbrotPanel.setProgressive(progressiveCheckBox.isSelected());
+            mandelbrotPanel.requestFocusInWindow();
+        });
+
+        JComboBox<RenderMode> renderModeBox = new JComboBox<>(RenderMode.values());
+        renderModeBox.setSelectedItem(mandelbrotPanel.getRenderMode());
+        renderModeBox.addActionListener(e -> {
+            mandelbrotPanel.setRenderMode((RenderMode) renderModeBox.getSelectedItem());
+            mandelbrotPanel.requestFocusInWindow();
+        });
+
+        JCheckBox metricsCheckBox = new JCheckBox("Metrics", mandelbrotPanel.isShowMetrics());
+        metricsCheckBox.addActionListener(e -> {
+            mandelbrotPanel.setShowMetrics(metricsCheckBox.isSelected());
+            mandelbrotPanel.requestFocusInWindow();
+        });
+
         JButton resetButton = new JButton("Reset");
         resetButton.addActionListener(e -> {
             mandelbrotPanel.reset();
@@ -120,8 +179,16 @@ public class Window extends JFrame{
         controlPanel.add(zoomFactorTextField);
         controlPanel.add(maxIterationsLabel);
         controlPanel.add(maxIterationsField);
+        controlPanel.add(autoIterationsCheckBox);
         controlPanel.add(changeColorButton);
         controlPanel.add(recordCheckBox);
+        controlPanel.add(recordToFileCheckBox);
+        controlPanel.add(fastPathCheckBox);
+        controlPanel.add(antialiasingCheckBox);
+        controlPanel.add(animateZoomCheckBox);
+        controlPanel.add(progressiveCheckBox);
+        controlPanel.add(renderModeBox);
+        controlPanel.add(metricsCheckBox);
         controlPanel.add(resetButton);
         controlPanel.add(openPlayerButton);
 
@@ -129,6 +196,7 @@ public class Window extends JFrame{
         mandelbrotPanel.requestFocusInWindow();
         this.add(controlPanel, BorderLayout.SOUTH);
         sliderChanged();
+        mandelbrotPanel.render();
 
         repaint();
         this.setVisible(true);
@@ -139,8 +207,7 @@ public class Window extends JFrame{
         mandelbrotPanel.setR(sliderFrame.getRedValue());
         mandelbrotPanel.setGreen(sliderFrame.getGreenValue());
         mandelbrotPanel.setBlue(sliderFrame.getBlueValue());
-        mandelbrotPanel.stateChanged = true;
-        repaint();
+        mandelbrotPanel.recolor();
     }
 
     private class SliderFrame extends JFrame {
@@ -197,7 +264,26 @@ public class Window extends JFrame{
     }
 
     //main method
+    //--workers host:port,host:port or --local-workers <count> render the tiles with TileWorker processes
     public static void main(String[] args) {
-        new Window();
+        TileCluster tileCluster = null;
+        try {
+            if(args.length == 2 && args[0].equals("--workers")){
+                tileCluster = TileCluster.connect(args[1]);
+            }
+            else if(args.length == 2 && args[0].equals("--local-workers")){
+                int localWorkers = Integer.parseInt(args[1]);
+                if(localWorkers < 1){
+                    throw new IllegalArgumentException("--local-workers has to be at least 1");
+                }
+                tileCluster = TileCluster.local(localWorkers, Math.max(1, Runtime.getRuntime().availableProcessors() / localWorkers));
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        new Window(tileCluster);
     }
 }
@@ -0,0 +1,46 @@
+package Mandelbrot.Self;
+
+import java.awt.*;
+
+//draws in-between images of a zoom from frames that are already rendered, frames are scaled around their center
+//the ratio of two frames is the range of the second one divided by the range of the first one, below 1 when zooming in
+public final class ZoomInterpolation {
+
+    private ZoomInterpolation(){
+    }
+
+    //draw image scaled by scale around its center, a scale above 1 magnifies
+    public static void drawScaled(Graphics2D g, Image image, double scale, float alpha){
+        if(image == null || alpha <= 0){
+            return;
+        }
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        if(alpha < 1){
+            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+        }
+        int width = image.getWidth(null);
+        int height = image.getHeight(null);
+        double scaledWidth = width * scale;
+        double scaledHeight = height * scale;
+        int x = (int)Math.round((width - scaledWidth) / 2);
+        int y = (int)Math.round((height - scaledHeight) / 2);
+        g2d.drawImage(image, x, y, (int)Math.round(scaledWidth), (int)Math.round(scaledHeight), null);
+        g2d.dispose();
+    }
+
+    //view at fraction (0..1) of the way from the frame from to the frame to, whose range is ratio times the range of from
+    //the frame that covers the whole view is drawn first, the other one is blended over it where it has pixels
+    public static void drawBetween(Graphics2D g, Image from, Image to, double ratio, double fraction){
+        double fromScale = Math.pow(ratio, -fraction);
+        double toScale = Math.pow(ratio, 1 - fraction);
+        if(ratio < 1){
+            drawScaled(g, from, fromScale, 1);
+            drawScaled(g, to, toScale, (float) fraction);
+        }
+        else{
+            drawScaled(g, to, toScale, 1);
+            drawScaled(g, from, fromScale, (float)(1 - fraction));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package Mandelbrot.Self;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//coloring one rendered frame, with the palette built once like the panel does and with a new palette every frame
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class ColoringBenchmarks {
+
+    private static final int MAX_ITERATIONS = 1000;
+
+    private int[] iterations;
+    private int[] pixels;
+    private Palette palette;
+
+    @Setup
+    public void setUp(){
+        iterations = new RenderEngine().renderFrame(RenderBenchmarks.viewport("home", MAX_ITERATIONS));
+        pixels = new int[iterations.length];
+        palette = new Palette(200, 200, 200, MAX_ITERATIONS);
+    }
+
+    @Benchmark
+    public int[] apply(){
+        palette.apply(iterations, pixels, 0, pixels.length);
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] applyWithNewPalette(){
+        new Palette(200, 200, 200, MAX_ITERATIONS).apply(iterations, pixels, 0, pixels.length);
+        return pixels;
+    }
+}
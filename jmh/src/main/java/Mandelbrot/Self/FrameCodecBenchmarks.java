@@ -0,0 +1,56 @@
+package Mandelbrot.Self;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//PNG encode and decode of one recorded frame, what the recorder does for every frame and the player when it loads one
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class FrameCodecBenchmarks {
+
+    private static final int MAX_ITERATIONS = 1000;
+
+    private BufferedImage frame;
+    private byte[] png;
+
+    @Setup
+    public void setUp() throws IOException {
+        int[] iterations = new RenderEngine().renderFrame(RenderBenchmarks.viewport("seahorse", MAX_ITERATIONS));
+        frame = new BufferedImage(RenderBenchmarks.WIDTH, RenderBenchmarks.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        new Palette(200, 200, 200, MAX_ITERATIONS).apply(iterations, pixels, 0, pixels.length);
+        png = encodePng();
+    }
+
+    @Benchmark
+    public byte[] encodePng() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(frame, "png", output);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public BufferedImage decodePng() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+}
@@ -0,0 +1,61 @@
+package Mandelbrot.Self;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//full frame renders with the default settings of the panel, the same viewports as the render group of RenderBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class RenderBenchmarks {
+
+    static final int WIDTH = 1080, HEIGHT = 600;
+
+    @Param({"home", "seahorse", "interior"})
+    public String view;
+
+    @Param({"100", "1000", "5000"})
+    public int maxIterations;
+
+    private RenderEngine engine;
+    private Viewport viewport;
+
+    @Setup
+    public void setUp(){
+        engine = new RenderEngine();
+        viewport = viewport(view, maxIterations);
+    }
+
+    static Viewport viewport(String view, int maxIterations){
+        switch (view) {
+            case "home":
+                return new Viewport(-0.75, 0.0, 3.5, 2.0, maxIterations, WIDTH, HEIGHT);
+            case "seahorse":
+                return new Viewport(-0.7435, 0.1314, 0.0035, 0.002, maxIterations, WIDTH, HEIGHT);
+            case "interior":
+                //inside the period-3 bulb, nothing escapes and the cardioid/bulb test does not help
+                return new Viewport(-0.122, 0.745, 0.0175, 0.01, maxIterations, WIDTH, HEIGHT);
+            default:
+                throw new IllegalArgumentException("Unknown view " + view);
+        }
+    }
+
+    @Benchmark
+    public int[] render(){
+        return engine.renderFrame(viewport);
+    }
+}